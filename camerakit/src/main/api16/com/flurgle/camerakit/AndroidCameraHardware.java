@@ -0,0 +1,304 @@
+package com.flurgle.camerakit;
+
+import android.graphics.Rect;
+import android.graphics.SurfaceTexture;
+import android.hardware.Camera;
+import android.view.SurfaceHolder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+@SuppressWarnings("deprecation")
+class AndroidCameraHardware implements CameraHardware {
+
+    private final Camera.CameraInfo mCameraInfo = new Camera.CameraInfo();
+
+    private Camera mCamera;
+    private Camera.Parameters mParameters;
+
+    private List<Size> mPreviewSizes;
+    private List<Size> mPictureSizes;
+    private List<Camera.Area> mFocusAreas;
+    private AutoFocusCallback mAutoFocusCallback;
+
+    // One wrapper for every focus cycle; the camera drops it on cancelAutoFocus().
+    private final Camera.AutoFocusCallback mCameraAutoFocusCallback = new Camera.AutoFocusCallback() {
+        @Override
+        public void onAutoFocus(boolean success, Camera camera) {
+            AutoFocusCallback callback = mAutoFocusCallback;
+            if (callback != null) {
+                callback.onAutoFocus(success);
+            }
+        }
+    };
+
+    @Override
+    public int getNumberOfCameras() {
+        return Camera.getNumberOfCameras();
+    }
+
+    @Override
+    public int getFacing(int cameraId) {
+        Camera.getCameraInfo(cameraId, mCameraInfo);
+        return mCameraInfo.facing;
+    }
+
+    @Override
+    public int getOrientation(int cameraId) {
+        Camera.getCameraInfo(cameraId, mCameraInfo);
+        return mCameraInfo.orientation;
+    }
+
+    @Override
+    public void open(int cameraId) {
+        mCamera = Camera.open(cameraId);
+    }
+
+    @Override
+    public boolean adopt(CameraHardware other) {
+        if (mCamera != null || !(other instanceof AndroidCameraHardware) || !other.isOpened()) {
+            return false;
+        }
+
+        AndroidCameraHardware source = (AndroidCameraHardware) other;
+        mCamera = source.mCamera;
+        mParameters = source.mParameters;
+        mPreviewSizes = source.mPreviewSizes;
+        mPictureSizes = source.mPictureSizes;
+        source.mCamera = null;
+        source.mParameters = null;
+        source.mPreviewSizes = null;
+        source.mPictureSizes = null;
+        return true;
+    }
+
+    @Override
+    public void release() {
+        if (mCamera != null) {
+            mCamera.release();
+            mCamera = null;
+            mParameters = null;
+            mPreviewSizes = null;
+            mPictureSizes = null;
+        }
+    }
+
+    @Override
+    public boolean isOpened() {
+        return mCamera != null;
+    }
+
+    @Override
+    public Camera getCamera() {
+        return mCamera;
+    }
+
+    @Override
+    public void loadParameters() {
+        mParameters = mCamera.getParameters();
+        mPreviewSizes = toSizes(mParameters.getSupportedPreviewSizes());
+        mPictureSizes = toSizes(mParameters.getSupportedPictureSizes());
+    }
+
+    @Override
+    public void commitParameters() {
+        mCamera.setParameters(mParameters);
+    }
+
+    @Override
+    public List<Size> getSupportedPreviewSizes() {
+        return mPreviewSizes;
+    }
+
+    @Override
+    public List<Size> getSupportedPictureSizes() {
+        return mPictureSizes;
+    }
+
+    @Override
+    public List<String> getSupportedFocusModes() {
+        return mParameters.getSupportedFocusModes();
+    }
+
+    @Override
+    public List<String> getSupportedFlashModes() {
+        return mParameters.getSupportedFlashModes();
+    }
+
+    @Override
+    public int getMaxNumMeteringAreas() {
+        return mParameters.getMaxNumMeteringAreas();
+    }
+
+    @Override
+    public Size getPreviewSize() {
+        Camera.Size size = mParameters.getPreviewSize();
+        return new Size(size.width, size.height);
+    }
+
+    @Override
+    public int getPreviewFormat() {
+        return mParameters.getPreviewFormat();
+    }
+
+    @Override
+    public void setPreviewSize(int width, int height) {
+        mParameters.setPreviewSize(width, height);
+    }
+
+    @Override
+    public void setPreviewFormat(int format) {
+        mParameters.setPreviewFormat(format);
+    }
+
+    @Override
+    public void setPictureSize(int width, int height) {
+        mParameters.setPictureSize(width, height);
+    }
+
+    @Override
+    public void setRotation(int rotation) {
+        mParameters.setRotation(rotation);
+    }
+
+    @Override
+    public void setFocusMode(String focusMode) {
+        mParameters.setFocusMode(focusMode);
+    }
+
+    @Override
+    public String getFocusMode() {
+        return mParameters.getFocusMode();
+    }
+
+    @Override
+    public void setFlashMode(String flashMode) {
+        mParameters.setFlashMode(flashMode);
+    }
+
+    @Override
+    public void setFocusArea(int left, int top, int right, int bottom, int weight) {
+        if (mFocusAreas == null) {
+            mFocusAreas = new ArrayList<>(1);
+            mFocusAreas.add(new Camera.Area(new Rect(), weight));
+        }
+
+        Camera.Area area = mFocusAreas.get(0);
+        area.rect.set(left, top, right, bottom);
+        area.weight = weight;
+        mParameters.setFocusAreas(mFocusAreas);
+        mParameters.setMeteringAreas(mFocusAreas);
+    }
+
+    @Override
+    public void clearFocusArea() {
+        mParameters.setFocusAreas(null);
+        mParameters.setMeteringAreas(null);
+    }
+
+    @Override
+    public void setDisplayOrientation(int degrees) {
+        mCamera.setDisplayOrientation(degrees);
+    }
+
+    @Override
+    public void setPreviewTexture(SurfaceTexture surfaceTexture) throws IOException {
+        mCamera.setPreviewTexture(surfaceTexture);
+    }
+
+    @Override
+    public void setPreviewDisplay(SurfaceHolder surfaceHolder) throws IOException {
+        mCamera.setPreviewDisplay(surfaceHolder);
+    }
+
+    @Override
+    public void startPreview() {
+        mCamera.startPreview();
+    }
+
+    @Override
+    public void stopPreview() {
+        mCamera.stopPreview();
+    }
+
+    @Override
+    public void takePicture(final ShutterCallback shutter, final PictureCallback postview, final PictureCallback jpeg) {
+        Camera.ShutterCallback shutterCallback = null;
+        if (shutter != null) {
+            shutterCallback = new Camera.ShutterCallback() {
+                @Override
+                public void onShutter() {
+                    shutter.onShutter();
+                }
+            };
+        }
+
+        Camera.PictureCallback postviewCallback = null;
+        if (postview != null) {
+            postviewCallback = new Camera.PictureCallback() {
+                @Override
+                public void onPictureTaken(byte[] data, Camera camera) {
+                    postview.onPictureTaken(data);
+                }
+            };
+        }
+
+        mCamera.takePicture(shutterCallback, null, postviewCallback, new Camera.PictureCallback() {
+            @Override
+            public void onPictureTaken(byte[] data, Camera camera) {
+                jpeg.onPictureTaken(data);
+            }
+        });
+    }
+
+    @Override
+    public void setOneShotPreviewCallback(final PreviewCallback callback) {
+        mCamera.setOneShotPreviewCallback(new Camera.PreviewCallback() {
+            @Override
+            public void onPreviewFrame(byte[] data, Camera camera) {
+                callback.onPreviewFrame(data);
+            }
+        });
+    }
+
+    @Override
+    public void setPreviewCallbackWithBuffer(final PreviewCallback callback) {
+        if (callback == null) {
+            mCamera.setPreviewCallbackWithBuffer(null);
+            return;
+        }
+
+        mCamera.setPreviewCallbackWithBuffer(new Camera.PreviewCallback() {
+            @Override
+            public void onPreviewFrame(byte[] data, Camera camera) {
+                callback.onPreviewFrame(data);
+            }
+        });
+    }
+
+    @Override
+    public void addCallbackBuffer(byte[] buffer) {
+        mCamera.addCallbackBuffer(buffer);
+    }
+
+    @Override
+    public void autoFocus(AutoFocusCallback callback) {
+        mAutoFocusCallback = callback;
+        mCamera.autoFocus(mCameraAutoFocusCallback);
+    }
+
+    @Override
+    public void cancelAutoFocus() {
+        mCamera.cancelAutoFocus();
+    }
+
+    private static List<Size> toSizes(List<Camera.Size> cameraSizes) {
+        List<Size> sizes = new ArrayList<>(cameraSizes.size());
+        for (Camera.Size size : cameraSizes) {
+            sizes.add(new Size(size.width, size.height));
+        }
+        return sizes;
+    }
+
+}
@@ -1,30 +1,40 @@
 package com.flurgle.camerakit;
 
+import android.graphics.ImageFormat;
 import android.graphics.Rect;
+import android.graphics.RectF;
 import android.graphics.YuvImage;
 import android.hardware.Camera;
 import android.media.CamcorderProfile;
 import android.media.MediaRecorder;
-import android.view.MotionEvent;
-import android.view.Surface;
 import android.view.SurfaceHolder;
-import android.view.View;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
 import java.util.TreeSet;
 
 import static com.flurgle.camerakit.CameraKit.Constants.FLASH_OFF;
 import static com.flurgle.camerakit.CameraKit.Constants.FOCUS_CONTINUOUS;
 import static com.flurgle.camerakit.CameraKit.Constants.FOCUS_OFF;
 import static com.flurgle.camerakit.CameraKit.Constants.FOCUS_TAP;
+import static com.flurgle.camerakit.CameraKit.Constants.FOCUS_TAP_WITH_MARKER;
 import static com.flurgle.camerakit.CameraKit.Constants.METHOD_STANDARD;
 import static com.flurgle.camerakit.CameraKit.Constants.METHOD_STILL;
+import static com.flurgle.camerakit.CameraKit.Constants.PHASE_CAPTURE_RESOLUTION;
+import static com.flurgle.camerakit.CameraKit.Constants.PHASE_DISPLAY_ORIENTATION;
+import static com.flurgle.camerakit.CameraKit.Constants.PHASE_FIRST_FRAME;
+import static com.flurgle.camerakit.CameraKit.Constants.PHASE_FLASH;
+import static com.flurgle.camerakit.CameraKit.Constants.PHASE_FOCUS;
+import static com.flurgle.camerakit.CameraKit.Constants.PHASE_GET_PARAMETERS;
+import static com.flurgle.camerakit.CameraKit.Constants.PHASE_OPEN;
+import static com.flurgle.camerakit.CameraKit.Constants.PHASE_SET_PARAMETERS;
+import static com.flurgle.camerakit.CameraKit.Constants.PHASE_START_PREVIEW;
+import static com.flurgle.camerakit.CameraKit.Constants.STAGE_FRAME_RECEIVED;
+import static com.flurgle.camerakit.CameraKit.Constants.STAGE_SHUTTER;
 
 @SuppressWarnings("deprecation")
 public class Camera1 extends CameraImpl {
@@ -32,17 +42,38 @@ public class Camera1 extends CameraImpl {
     private static final int FOCUS_AREA_SIZE_DEFAULT = 300;
     private static final int FOCUS_METERING_AREA_WEIGHT_DEFAULT = 1000;
 
+    private final CameraHardware mHardware;
+    private final SurfaceBinding mSurfaceBinding;
+    private final FrameDispatcher mFrameDispatcher;
+
     private int mCameraId;
-    private Camera mCamera;
-    private Camera.Parameters mCameraParameters;
-    private Camera.CameraInfo mCameraInfo;
+    // Whether mCameraId was looked up for a facing, which means enumerating every camera.
+    private boolean mCameraResolved;
+    private int mSensorFacing;
+    private int mSensorOrientation;
     private Size mPreviewSize;
     private Size mCaptureSize;
+    private final FocusController mFocusController;
+    private final RectF mFocusPoint = new RectF();
+
+    // Captures run one at a time against the camera. The next one starts as soon as the
+    // current one has its frame, while the previous picture is still being processed.
+    private final ArrayDeque<Capture> mCaptureQueue = new ArrayDeque<>();
+    private Capture mActiveCapture;
+    // Captures that have their frame and are still being turned into a picture. Guarded by
+    // mCaptureQueue.
+    private final List<Capture> mProcessingCaptures = new ArrayList<>();
+
     private MediaRecorder mMediaRecorder;
     private File mVideoFile;
-    private Camera.AutoFocusCallback mAutofocusCallback;
+    private ViewTransform mViewTransform;
 
     private int mDisplayOrientation;
+    private int mCaptureRotation;
+
+    // Configuration as seen by callback and worker threads. Replaced as a whole, never mutated,
+    // so a reader that takes one reference sees values that belong together.
+    private volatile CameraState mState = CameraState.CLOSED;
 
     @Facing
     private int mFacing;
@@ -53,47 +84,99 @@ public class Camera1 extends CameraImpl {
     @Focus
     private int mFocus;
 
-    @Method
-    private int mMethod;
-
     @Zoom
     private int mZoom;
 
     Camera1(CameraListener callback, PreviewImpl preview) {
+        this(callback, preview, new AndroidCameraHardware());
+    }
+
+    Camera1(CameraListener callback, PreviewImpl preview, CameraHardware hardware) {
         super(callback, preview);
+        mHardware = hardware;
+        mFrameDispatcher = new FrameDispatcher(hardware);
+        mFocusController = new FocusController(hardware, new FocusController.AreaMapper() {
+            @Override
+            public void mapFocusArea(float x, float y, Rect out) {
+                calculateFocusArea(x, y, out);
+            }
+        }, FOCUS_METERING_AREA_WEIGHT_DEFAULT);
+        mSurfaceBinding = new SurfaceBinding(new SurfaceBinding.Binder() {
+            @Override
+            public void bind() throws Exception {
+                setupPreview();
+            }
+        }, mTracer);
+
         preview.setCallback(new PreviewImpl.Callback() {
             @Override
             public void onSurfaceChanged() {
-                if (mCamera != null) {
-                    setupPreview();
+                mSurfaceBinding.setSurfaceReady(true);
+                if (mHardware.isOpened()) {
                     adjustCameraParameters();
+                    updateViewTransform();
                 }
             }
-        });
 
-        mCameraInfo = new Camera.CameraInfo();
+            @Override
+            public void onSurfaceDestroyed() {
+                mSurfaceBinding.setSurfaceReady(false);
+            }
 
+            @Override
+            public void onFirstFrameRendered() {
+                mTracer.endSession(PHASE_FIRST_FRAME);
+            }
+        });
     }
 
     // CameraImpl:
 
     @Override
     void start() {
-        setFacing(mFacing);
+        mTracer.beginSession();
+        if (!mCameraResolved) {
+            setFacing(mFacing);
+        }
         openCamera();
-        if (mPreview.isReady()) setupPreview();
-        mCamera.startPreview();
+        mSurfaceBinding.setSurfaceReady(mPreview.isReady());
+        mSurfaceBinding.setCameraReady(true);
+
+        mPreview.awaitFirstFrame();
+        long startPreview = mTracer.begin(PHASE_START_PREVIEW);
+        mHardware.startPreview();
+        mTracer.end(PHASE_START_PREVIEW, startPreview);
+        startFrameDispatcher();
     }
 
     @Override
     void stop() {
-        if (mCamera != null) mCamera.stopPreview();
+        mFrameDispatcher.stop();
+        if (mHardware.isOpened()) mHardware.stopPreview();
         releaseCamera();
     }
 
     @Override
     void setDisplayOrientation(int displayOrientation) {
+        if (this.mDisplayOrientation == displayOrientation) {
+            return;
+        }
+
         this.mDisplayOrientation = displayOrientation;
+        if (mHardware.isOpened()) {
+            adjustCameraParameters();
+            mHardware.setDisplayOrientation(
+                    calculateCameraRotation(mDisplayOrientation)
+            );
+            updateViewTransform();
+        }
+    }
+
+    /**
+     * Latest configuration snapshot, safe to read from any thread.
+     */
+    CameraState getState() {
+        return mState;
     }
 
     @Override
@@ -103,10 +186,12 @@ public class Camera1 extends CameraImpl {
             return;
         }
 
-        for (int i = 0, count = Camera.getNumberOfCameras(); i < count; i++) {
-            Camera.getCameraInfo(i, mCameraInfo);
-            if (mCameraInfo.facing == internalFacing) {
+        for (int i = 0, count = mHardware.getNumberOfCameras(); i < count; i++) {
+            if (mHardware.getFacing(i) == internalFacing) {
                 mCameraId = i;
+                mCameraResolved = true;
+                mSensorFacing = internalFacing;
+                mSensorOrientation = mHardware.getOrientation(i);
                 mFacing = facing;
                 break;
             }
@@ -120,21 +205,21 @@ public class Camera1 extends CameraImpl {
 
     @Override
     void setFlash(@Flash int flash) {
-        if (mCameraParameters != null) {
-            List<String> flashes = mCameraParameters.getSupportedFlashModes();
+        if (mHardware.isOpened()) {
+            List<String> flashes = mHardware.getSupportedFlashModes();
             String internalFlash = new ConstantMapper.Flash(flash).map();
             if (flashes != null && flashes.contains(internalFlash)) {
-                mCameraParameters.setFlashMode(internalFlash);
+                mHardware.setFlashMode(internalFlash);
                 mFlash = flash;
             } else {
                 String currentFlash = new ConstantMapper.Flash(mFlash).map();
                 if (flashes == null || !flashes.contains(currentFlash)) {
-                    mCameraParameters.setFlashMode(Camera.Parameters.FLASH_MODE_OFF);
+                    mHardware.setFlashMode(Camera.Parameters.FLASH_MODE_OFF);
                     mFlash = FLASH_OFF;
                 }
             }
 
-            mCamera.setParameters(mCameraParameters);
+            mHardware.commitParameters();
         } else {
             mFlash = flash;
         }
@@ -142,7 +227,7 @@ public class Camera1 extends CameraImpl {
 
     @Override
     Camera getCamera() {
-        return mCamera;
+        return mHardware.getCamera();
     }
 
     @Override
@@ -150,11 +235,11 @@ public class Camera1 extends CameraImpl {
         this.mFocus = focus;
         switch (focus) {
             case FOCUS_CONTINUOUS:
-                if (mCameraParameters != null) {
+                if (mHardware.isOpened()) {
                     detachFocusTapListener();
-                    final List<String> modes = mCameraParameters.getSupportedFocusModes();
+                    final List<String> modes = mHardware.getSupportedFocusModes();
                     if (modes.contains(Camera.Parameters.FOCUS_MODE_CONTINUOUS_PICTURE)) {
-                        mCameraParameters.setFocusMode(Camera.Parameters.FOCUS_MODE_CONTINUOUS_PICTURE);
+                        mHardware.setFocusMode(Camera.Parameters.FOCUS_MODE_CONTINUOUS_PICTURE);
                     } else {
                         setFocus(FOCUS_OFF);
                     }
@@ -162,25 +247,26 @@ public class Camera1 extends CameraImpl {
                 break;
 
             case FOCUS_TAP:
-                if (mCameraParameters != null) {
+            case FOCUS_TAP_WITH_MARKER:
+                if (mHardware.isOpened()) {
                     attachFocusTapListener();
-                    final List<String> modes = mCameraParameters.getSupportedFocusModes();
+                    final List<String> modes = mHardware.getSupportedFocusModes();
                     if (modes.contains(Camera.Parameters.FOCUS_MODE_CONTINUOUS_PICTURE)) {
-                        mCameraParameters.setFocusMode(Camera.Parameters.FOCUS_MODE_CONTINUOUS_PICTURE);
+                        mHardware.setFocusMode(Camera.Parameters.FOCUS_MODE_CONTINUOUS_PICTURE);
                     }
                 }
                 break;
 
             case FOCUS_OFF:
-                if (mCameraParameters != null) {
+                if (mHardware.isOpened()) {
                     detachFocusTapListener();
-                    final List<String> modes = mCameraParameters.getSupportedFocusModes();
+                    final List<String> modes = mHardware.getSupportedFocusModes();
                     if (modes.contains(Camera.Parameters.FOCUS_MODE_FIXED)) {
-                        mCameraParameters.setFocusMode(Camera.Parameters.FOCUS_MODE_FIXED);
+                        mHardware.setFocusMode(Camera.Parameters.FOCUS_MODE_FIXED);
                     } else if (modes.contains(Camera.Parameters.FOCUS_MODE_INFINITY)) {
-                        mCameraParameters.setFocusMode(Camera.Parameters.FOCUS_MODE_INFINITY);
+                        mHardware.setFocusMode(Camera.Parameters.FOCUS_MODE_INFINITY);
                     } else {
-                        mCameraParameters.setFocusMode(Camera.Parameters.FOCUS_MODE_AUTO);
+                        mHardware.setFocusMode(Camera.Parameters.FOCUS_MODE_AUTO);
                     }
                 }
                 break;
@@ -188,8 +274,29 @@ public class Camera1 extends CameraImpl {
     }
 
     @Override
-    void setMethod(@Method int method) {
-        this.mMethod = method;
+    void setFocusMarker(FocusMarkerLayout marker) {
+        mFocusController.setMarker(marker);
+    }
+
+    @Override
+    void setFrameProcessor(FrameProcessor frameProcessor) {
+        mFrameDispatcher.stop();
+        mFrameDispatcher.setProcessor(frameProcessor);
+        if (mSurfaceBinding.isBound()) {
+            startFrameDispatcher();
+        }
+    }
+
+    @Override
+    void setSharpnessListener(SharpnessListener sharpnessListener) {
+        // Only start or stop the dispatcher when its consumers come and go, so arming an auto
+        // capture doesn't cost a buffer reallocation.
+        mFrameDispatcher.setSharpnessListener(sharpnessListener);
+        if (!mFrameDispatcher.hasConsumers()) {
+            mFrameDispatcher.stop();
+        } else if (!mFrameDispatcher.isRunning() && mSurfaceBinding.isBound()) {
+            startFrameDispatcher();
+        }
     }
 
     @Override
@@ -203,30 +310,190 @@ public class Camera1 extends CameraImpl {
     }
 
     @Override
-    void captureImage() {
-        switch (mMethod) {
+    void captureImage(final Capture capture) {
+        // A still capture cancelled or timed out while it holds the camera would otherwise stall
+        // the queue until its frame shows up, which may be never. Its frame request is simply
+        // replaced by the next capture's. A standard capture keeps the camera until its picture
+        // arrives, since the camera can't take another one before that.
+        if (capture.getMethod() == METHOD_STILL) {
+            capture.addDoneListener(new Runnable() {
+                @Override
+                public void run() {
+                    finishCapture(capture);
+                }
+            });
+        }
+        synchronized (mCaptureQueue) {
+            mCaptureQueue.add(capture);
+        }
+        runNextCapture();
+    }
+
+    private void runNextCapture() {
+        Capture capture;
+        synchronized (mCaptureQueue) {
+            if (mActiveCapture != null) {
+                return;
+            }
+
+            do {
+                capture = mCaptureQueue.poll();
+            } while (capture != null && capture.isAbandoned());
+
+            if (capture == null) {
+                return;
+            }
+            mActiveCapture = capture;
+        }
+
+        if (!mHardware.isOpened()) {
+            failCaptures(new IllegalStateException("Camera is not open"));
+            return;
+        }
+
+        try {
+            takePicture(capture);
+        } catch (RuntimeException e) {
+            capture.fail(e);
+            finishCapture(capture);
+        }
+    }
+
+    // Frees the camera for the next capture once its frame has arrived, or once a still capture
+    // was abandoned before that.
+    private void finishCapture(Capture capture) {
+        synchronized (mCaptureQueue) {
+            if (mActiveCapture != capture) {
+                return;
+            }
+            mActiveCapture = null;
+        }
+        runNextCapture();
+    }
+
+    // Frees the camera once the capture has its frame, and keeps the capture where stop() can
+    // fail it until its picture has been handed out.
+    private void startProcessing(Capture capture) {
+        synchronized (mCaptureQueue) {
+            if (mActiveCapture != capture) {
+                return;
+            }
+            mActiveCapture = null;
+            mProcessingCaptures.add(capture);
+        }
+        runNextCapture();
+    }
+
+    private void finishProcessing(Capture capture) {
+        synchronized (mCaptureQueue) {
+            mProcessingCaptures.remove(capture);
+        }
+    }
+
+    private void failCaptures(Exception error) {
+        Capture active;
+        Capture[] queued;
+        Capture[] processing;
+        synchronized (mCaptureQueue) {
+            active = mActiveCapture;
+            mActiveCapture = null;
+            queued = mCaptureQueue.toArray(new Capture[mCaptureQueue.size()]);
+            mCaptureQueue.clear();
+            processing = mProcessingCaptures.toArray(new Capture[mProcessingCaptures.size()]);
+            mProcessingCaptures.clear();
+        }
+
+        if (active != null) {
+            active.fail(error);
+        }
+        for (Capture capture : queued) {
+            capture.fail(error);
+        }
+        // Their pictures would arrive after the camera is gone, so they end now as well.
+        for (Capture capture : processing) {
+            capture.fail(error);
+        }
+    }
+
+    private void takePicture(final Capture capture) {
+        final CameraState state = mState;
+        switch (capture.getMethod()) {
             case METHOD_STANDARD:
-                mCamera.takePicture(null, null, null, new Camera.PictureCallback() {
+                CameraHardware.ShutterCallback shutterCallback = null;
+                if (capture.isTraced()) {
+                    shutterCallback = new CameraHardware.ShutterCallback() {
+                        @Override
+                        public void onShutter() {
+                            capture.mark(STAGE_SHUTTER, 0);
+                        }
+                    };
+                }
+
+                CameraHardware.PictureCallback postviewCallback = null;
+                if (capture.getThumbnailSize() > 0) {
+                    final Size postviewSize = state.getPreviewSize();
+                    final int postviewRotation = state.getCaptureRotation();
+                    postviewCallback = new CameraHardware.PictureCallback() {
+                        @Override
+                        public void onPictureTaken(byte[] data) {
+                            // Postview data is optional and its layout is device specific, only
+                            // NV21 frames at preview size are used.
+                            int width = postviewSize.getWidth();
+                            int height = postviewSize.getHeight();
+                            if (data != null && data.length >= width * height * 3 / 2) {
+                                capture.dispatchThumbnail(Thumbnail.fromNv21(data, width, height, capture.getThumbnailSize(), postviewRotation, false));
+                            }
+                        }
+                    };
+                }
+
+                mHardware.takePicture(shutterCallback, postviewCallback, new CameraHardware.PictureCallback() {
                     @Override
-                    public void onPictureTaken(byte[] data, Camera camera) {
-                        mCameraListener.onPictureTaken(data);
-                        camera.startPreview();
+                    public void onPictureTaken(byte[] data) {
+                        capture.mark(STAGE_FRAME_RECEIVED, data.length);
+                        if (mState.isOpened()) {
+                            mHardware.startPreview();
+                        }
+                        startProcessing(capture);
+                        if (!capture.isAbandoned()) {
+                            capture.dispatchPicture(data);
+                        }
+                        finishProcessing(capture);
                     }
                 });
                 break;
 
             case METHOD_STILL:
-                mCamera.setOneShotPreviewCallback(new Camera.PreviewCallback() {
+                final Size previewSize = state.getPreviewSize();
+                final int previewFormat = state.getPreviewFormat();
+                final int sensorOrientation = state.getSensorOrientation();
+                final boolean mirror = capture.isMirrorFront() && state.isFrontFacing();
+                CameraHardware.PreviewCallback stillCallback = new CameraHardware.PreviewCallback() {
                     @Override
-                    public void onPreviewFrame(byte[] data, Camera camera) {
-                        new Thread(new ProcessStillTask(data, camera, mCameraInfo.orientation, new ProcessStillTask.OnStillProcessedListener() {
+                    public void onPreviewFrame(byte[] data) {
+                        capture.mark(STAGE_FRAME_RECEIVED, data.length);
+                        startProcessing(capture);
+                        new Thread(new ProcessStillTask(data, previewSize.getWidth(), previewSize.getHeight(), previewFormat, sensorOrientation, mirror, capture, new ProcessStillTask.OnStillProcessedListener() {
                             @Override
-                            public void onStillProcessed(final YuvImage yuv) {
-                                mCameraListener.onPictureTaken(yuv);
+                            public void onStillProcessed(YuvImage yuv, int rotation, boolean mirrored) {
+                                if (!capture.isAbandoned()) {
+                                    capture.dispatchPicture(yuv, rotation, mirrored);
+                                }
+                                finishProcessing(capture);
                             }
                         })).start();
+
+                        if (capture.getThumbnailSize() > 0) {
+                            capture.dispatchThumbnail(Thumbnail.fromNv21(data, previewSize.getWidth(), previewSize.getHeight(), capture.getThumbnailSize(), sensorOrientation, mirror));
+                        }
                     }
-                });
+                };
+
+                if (capture.getStillCandidates() > 1) {
+                    requestStillFrame(new SharpestFrameCallback(previewSize, capture.getStillCandidates(), stillCallback));
+                } else {
+                    requestStillFrame(stillCallback);
+                }
                 break;
         }
     }
@@ -247,44 +514,44 @@ public class Camera1 extends CameraImpl {
 
     @Override
     Size getCaptureResolution() {
-        if (mCaptureSize == null && mCameraParameters != null) {
-            TreeSet<Size> sizes = new TreeSet<>();
-            for (Camera.Size size : mCameraParameters.getSupportedPictureSizes()) {
-                sizes.add(new Size(size.width, size.height));
-            }
+        if (mCaptureSize == null && mHardware.isOpened()) {
+            mCaptureSize = chooseCaptureSize(mHardware);
+        }
 
-            TreeSet<AspectRatio> aspectRatios = findCommonAspectRatios(
-                    mCameraParameters.getSupportedPreviewSizes(),
-                    mCameraParameters.getSupportedPictureSizes()
-            );
-            AspectRatio targetRatio = aspectRatios.size() > 0 ? aspectRatios.last() : null;
+        return mCaptureSize;
+    }
 
-            Iterator<Size> descendingSizes = sizes.descendingIterator();
-            Size size;
-            while (descendingSizes.hasNext() && mCaptureSize == null) {
-                size = descendingSizes.next();
-                if (targetRatio == null || targetRatio.matches(size)) {
-                    mCaptureSize = size;
-                    break;
-                }
+    // Largest picture size in an aspect ratio that both preview and picture sizes offer.
+    static Size chooseCaptureSize(CameraHardware hardware) {
+        TreeSet<Size> sizes = new TreeSet<>();
+        sizes.addAll(hardware.getSupportedPictureSizes());
+
+        TreeSet<AspectRatio> aspectRatios = new CommonAspectRatioFilter(
+                hardware.getSupportedPreviewSizes(),
+                hardware.getSupportedPictureSizes()
+        ).filter();
+        AspectRatio targetRatio = aspectRatios.size() > 0 ? aspectRatios.last() : null;
+
+        Iterator<Size> descendingSizes = sizes.descendingIterator();
+        while (descendingSizes.hasNext()) {
+            Size size = descendingSizes.next();
+            if (targetRatio == null || targetRatio.matches(size)) {
+                return size;
             }
         }
-
-        return mCaptureSize;
+        return null;
     }
 
     @Override
     Size getPreviewResolution() {
-        if (mPreviewSize == null && mCameraParameters != null) {
+        if (mPreviewSize == null && mHardware.isOpened()) {
             TreeSet<Size> sizes = new TreeSet<>();
-            for (Camera.Size size : mCameraParameters.getSupportedPreviewSizes()) {
-                sizes.add(new Size(size.width, size.height));
-            }
+            sizes.addAll(mHardware.getSupportedPreviewSizes());
 
-            TreeSet<AspectRatio> aspectRatios = findCommonAspectRatios(
-                    mCameraParameters.getSupportedPreviewSizes(),
-                    mCameraParameters.getSupportedPictureSizes()
-            );
+            TreeSet<AspectRatio> aspectRatios = new CommonAspectRatioFilter(
+                    mHardware.getSupportedPreviewSizes(),
+                    mHardware.getSupportedPictureSizes()
+            ).filter();
             AspectRatio targetRatio = aspectRatios.size() > 0 ? aspectRatios.last() : null;
 
             Iterator<Size> descendingSizes = sizes.descendingIterator();
@@ -303,163 +570,253 @@ public class Camera1 extends CameraImpl {
 
     @Override
     boolean isCameraOpened() {
-        return mCamera != null;
+        return mHardware.isOpened();
     }
 
     // Internal:
 
     private void openCamera() {
-        if (mCamera != null) {
+        if (mHardware.isOpened()) {
             releaseCamera();
         }
 
-        mCamera = Camera.open(mCameraId);
-        mCameraParameters = mCamera.getParameters();
+        CameraPrewarmer.Prewarm prewarm = CameraPrewarmer.take(mCameraId);
+        if (prewarm != null && mHardware.adopt(prewarm.getHardware())) {
+            adoptCamera(prewarm);
+        } else {
+            if (prewarm != null) {
+                prewarm.release();
+            }
+
+            long open = mTracer.begin(PHASE_OPEN);
+            mHardware.open(mCameraId);
+            mTracer.end(PHASE_OPEN, open);
+
+            long getParameters = mTracer.begin(PHASE_GET_PARAMETERS);
+            mHardware.loadParameters();
+            mTracer.end(PHASE_GET_PARAMETERS, getParameters);
+
+            configureCamera();
+        }
+
+        mCameraListener.onCameraOpened();
+    }
 
+    private void configureCamera() {
         adjustCameraParameters();
-        mCamera.setDisplayOrientation(
+
+        long displayOrientation = mTracer.begin(PHASE_DISPLAY_ORIENTATION);
+        mHardware.setDisplayOrientation(
                 calculateCameraRotation(mDisplayOrientation)
         );
+        mTracer.end(PHASE_DISPLAY_ORIENTATION, displayOrientation);
+    }
 
-        mCameraListener.onCameraOpened();
+    // Takes over a camera opened ahead of time. When it was set up the way this instance would
+    // set it up, no parameters are sent again.
+    private void adoptCamera(CameraPrewarmer.Prewarm prewarm) {
+        if (!prewarm.matches(mDisplayOrientation, mFocus, mFlash)) {
+            configureCamera();
+            return;
+        }
+
+        mCaptureSize = prewarm.getCaptureSize();
+        mCaptureRotation = prewarm.getCaptureRotation();
+        Size previewSize = mHardware.getPreviewSize();
+        mPreview.setTruePreviewSize(previewSize.getWidth(), previewSize.getHeight());
+        publishState();
     }
 
-    private void setupPreview() {
-        try {
-            if (mPreview.getOutputClass() == SurfaceHolder.class) {
-                mCamera.setPreviewDisplay(mPreview.getSurfaceHolder());
+    private void setupPreview() throws IOException {
+        if (mPreview.getOutputClass() == SurfaceHolder.class) {
+            mHardware.setPreviewDisplay(mPreview.getSurfaceHolder());
+        } else {
+            mHardware.setPreviewTexture(mPreview.getSurfaceTexture());
+        }
+    }
+
+    private void requestStillFrame(CameraHardware.PreviewCallback callback) {
+        mFrameDispatcher.requestFrame(callback);
+    }
+
+    // Looks at the next few preview frames and hands on only the sharpest. Every frame it sees
+    // is already a private copy, so keeping the best one costs no extra copy.
+    private class SharpestFrameCallback implements CameraHardware.PreviewCallback {
+
+        private final SharpnessMeter mMeter = new SharpnessMeter();
+        private final Size mPreviewSize;
+        private final int mCandidates;
+        private final CameraHardware.PreviewCallback mTarget;
+
+        private int mSeen;
+        private byte[] mBest;
+        private float mBestSharpness = -1;
+
+        SharpestFrameCallback(Size previewSize, int candidates, CameraHardware.PreviewCallback target) {
+            mPreviewSize = previewSize;
+            mCandidates = candidates;
+            mTarget = target;
+        }
+
+        @Override
+        public void onPreviewFrame(byte[] data) {
+            mMeter.measure(data, mPreviewSize.getWidth(), mPreviewSize.getHeight());
+            if (mMeter.getSharpness() > mBestSharpness) {
+                mBestSharpness = mMeter.getSharpness();
+                mBest = data;
+            }
+
+            if (++mSeen >= mCandidates || !mState.isOpened()) {
+                mTarget.onPreviewFrame(mBest);
             } else {
-                mCamera.setPreviewTexture(mPreview.getSurfaceTexture());
+                requestStillFrame(this);
             }
-        } catch (Exception e) {
-            new Thread(new Runnable() {
-                @Override
-                public void run() {
-                    try {
-                        Thread.sleep(3000);
-                        if (mCamera != null) {
-                            if (mPreview.getOutputClass() == SurfaceHolder.class) {
-                                mCamera.setPreviewDisplay(mPreview.getSurfaceHolder());
-                            } else {
-                                mCamera.setPreviewTexture(mPreview.getSurfaceTexture());
-                            }
-                        }
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                    }
-                }
-            }).start();
-            e.printStackTrace();
         }
+
+    }
+
+    private void startFrameDispatcher() {
+        CameraState state = mState;
+        if (state.isOpened() && mFrameDispatcher.hasConsumers()) {
+            updateViewTransform();
+            mFrameDispatcher.start(state.getPreviewSize(), state.getPreviewFormat(), state.getSensorOrientation());
+        }
+    }
+
+    private void updateViewTransform() {
+        mViewTransform = createViewTransform();
+        mFrameDispatcher.setViewTransform(mViewTransform);
+    }
+
+    // How the open camera's preview frames land in the preview view, or null before layout.
+    private ViewTransform createViewTransform() {
+        CameraState state = mState;
+        Size previewSize = state.getPreviewSize();
+        int viewWidth = mPreview.getContainerWidth();
+        int viewHeight = mPreview.getContainerHeight();
+        if (previewSize == null || viewWidth == 0 || viewHeight == 0) {
+            return null;
+        }
+
+        return new ViewTransform(
+                viewWidth,
+                viewHeight,
+                previewSize.getWidth(),
+                previewSize.getHeight(),
+                calculateCameraRotation(state.getDisplayOrientation()),
+                state.isFrontFacing()
+        );
     }
 
     private void releaseCamera() {
-        if (mCamera != null) {
-            mCamera.release();
-            mCamera = null;
-            mCameraParameters = null;
+        if (mHardware.isOpened()) {
+            mFrameDispatcher.stop();
+            mFrameDispatcher.cancelFrameRequest();
+            mFocusController.cancel();
+            failCaptures(new IllegalStateException("Camera closed"));
+            mSurfaceBinding.setCameraReady(false);
+            mState = CameraState.CLOSED;
+            mHardware.release();
             mPreviewSize = null;
             mCaptureSize = null;
             mCameraListener.onCameraClosed();
         }
     }
 
+    // Clockwise rotation of captured pictures. Front sensors face the user, so the display
+    // rotation adds to the sensor orientation instead of cancelling it.
+    private int calculateCaptureRotation(int rotation) {
+        return calculateCaptureRotation(mSensorFacing, mSensorOrientation, rotation);
+    }
+
+    static int calculateCaptureRotation(int sensorFacing, int sensorOrientation, int rotation) {
+        if (sensorFacing == Camera.CameraInfo.CAMERA_FACING_FRONT) {
+            return (sensorOrientation + rotation) % 360;
+        } else {
+            return (sensorOrientation - rotation + 360) % 360;
+        }
+    }
+
     private int calculateCameraRotation(int rotation) {
-        if (mCameraInfo.facing == Camera.CameraInfo.CAMERA_FACING_FRONT) {
-            return (360 - (mCameraInfo.orientation + rotation) % 360) % 360;
+        return calculateCameraRotation(mSensorFacing, mSensorOrientation, rotation);
+    }
+
+    static int calculateCameraRotation(int sensorFacing, int sensorOrientation, int rotation) {
+        if (sensorFacing == Camera.CameraInfo.CAMERA_FACING_FRONT) {
+            return (360 - (sensorOrientation + rotation) % 360) % 360;
         } else {
-            return (mCameraInfo.orientation - rotation + 360) % 360;
+            return (sensorOrientation - rotation + 360) % 360;
         }
     }
 
     private void adjustCameraParameters() {
         try {
-            /*mPreview.setTruePreviewSize(
-                    getPreviewResolution().getWidth(),
-                    getPreviewResolution().getHeight()
-            );
-
-            mCameraParameters.setPreviewSize(
-                    getPreviewResolution().getWidth(),
-                    getPreviewResolution().getHeight()
-            );
-
-            mCameraParameters.setPictureSize(
-                    getCaptureResolution().getWidth(),
-                    getCaptureResolution().getHeight()
-            );*/
-
+            long captureResolution = mTracer.begin(PHASE_CAPTURE_RESOLUTION);
             Size resolution = getCaptureResolution();
+            mTracer.end(PHASE_CAPTURE_RESOLUTION, captureResolution);
             int resolutionWidth = resolution.getWidth();
             int resolutionHeight = resolution.getHeight();
 
             if (resolutionHeight > resolutionWidth) {
-                mCameraParameters.setPreviewSize(resolutionHeight, resolutionWidth);
-                mCameraParameters.setPictureSize(resolutionHeight, resolutionWidth);
+                mHardware.setPreviewSize(resolutionHeight, resolutionWidth);
+                mHardware.setPictureSize(resolutionHeight, resolutionWidth);
                 mPreview.setTruePreviewSize(resolutionHeight, resolutionWidth);
             } else {
-                mCameraParameters.setPreviewSize(resolutionWidth, resolutionHeight);
-                mCameraParameters.setPictureSize(resolutionWidth, resolutionHeight);
+                mHardware.setPreviewSize(resolutionWidth, resolutionHeight);
+                mHardware.setPictureSize(resolutionWidth, resolutionHeight);
                 mPreview.setTruePreviewSize(resolutionWidth, resolutionHeight);
             }
+            // Frame processing and still capture assume NV21, the one format every device supports.
+            mHardware.setPreviewFormat(ImageFormat.NV21);
 
-            switch (mDisplayOrientation) {
-                case Surface.ROTATION_0: // This is display orientation
-                    mCamera.setDisplayOrientation(90);
-                    break;
-                case Surface.ROTATION_90:
-                    mCamera.setDisplayOrientation(0);
-                    break;
-                case Surface.ROTATION_180:
-                    mCamera.setDisplayOrientation(270);
-                    break;
-                case Surface.ROTATION_270:
-                    mCamera.setDisplayOrientation(180);
-                    break;
-            }
-
-            int rotation = (calculateCameraRotation(mDisplayOrientation)
-                    + (mFacing == CameraKit.Constants.FACING_FRONT ? 180 : 0)) % 360;
-            mCameraParameters.setRotation(rotation);
+            int rotation = calculateCaptureRotation(mDisplayOrientation);
+            mHardware.setRotation(rotation);
+            mCaptureRotation = rotation;
 
+            long focus = mTracer.begin(PHASE_FOCUS);
             setFocus(mFocus);
+            mTracer.end(PHASE_FOCUS, focus);
+
+            long flash = mTracer.begin(PHASE_FLASH);
             setFlash(mFlash);
+            mTracer.end(PHASE_FLASH, flash);
+
+            long setParameters = mTracer.begin(PHASE_SET_PARAMETERS);
+            mHardware.commitParameters();
+            mTracer.end(PHASE_SET_PARAMETERS, setParameters);
 
-            mCamera.setParameters(mCameraParameters);
+            publishState();
         } catch (Exception e) {
+            mTracer.abandon();
             e.printStackTrace();
             //adjustCameraParameters();
         }
     }
 
-    private TreeSet<AspectRatio> findCommonAspectRatios(List<Camera.Size> previewSizes, List<Camera.Size> captureSizes) {
-        Set<AspectRatio> previewAspectRatios = new HashSet<>();
-        for (Camera.Size size : previewSizes) {
-            if (size.width >= CameraKit.Internal.screenHeight && size.height >= CameraKit.Internal.screenWidth) {
-                previewAspectRatios.add(AspectRatio.of(size.width, size.height));
-            }
-        }
-
-        Set<AspectRatio> captureAspectRatios = new HashSet<>();
-        for (Camera.Size size : captureSizes) {
-            captureAspectRatios.add(AspectRatio.of(size.width, size.height));
-        }
-
-        TreeSet<AspectRatio> output = new TreeSet<>();
-        for (AspectRatio aspectRatio : previewAspectRatios) {
-            if (captureAspectRatios.contains(aspectRatio)) {
-                output.add(aspectRatio);
-            }
-        }
-
-        return output;
+    private void publishState() {
+        mState = new CameraState(
+                true,
+                mCameraId,
+                mSensorFacing,
+                mSensorOrientation,
+                mDisplayOrientation,
+                mHardware.getPreviewSize(),
+                mHardware.getPreviewFormat(),
+                mCaptureSize,
+                mCaptureRotation
+        );
     }
 
     private void initMediaRecorder() {
+        Camera camera = mHardware.getCamera();
+        if (camera == null) {
+            throw new IllegalStateException("Video recording requires an opened android.hardware.Camera.");
+        }
+
         mMediaRecorder = new MediaRecorder();
-        mCamera.unlock();
+        camera.unlock();
 
-        mMediaRecorder.setCamera(mCamera);
+        mMediaRecorder.setCamera(camera);
         mMediaRecorder.setVideoSource(MediaRecorder.VideoSource.CAMERA);
         mMediaRecorder.setAudioSource(MediaRecorder.AudioSource.CAMCORDER);
         mMediaRecorder.setProfile(CamcorderProfile.get(CamcorderProfile.QUALITY_480P));
@@ -469,7 +826,7 @@ public class Camera1 extends CameraImpl {
 
         mMediaRecorder.setMaxDuration(20000);
         mMediaRecorder.setMaxFileSize(5000000);
-        mMediaRecorder.setOrientationHint(mCameraInfo.orientation);
+        mMediaRecorder.setOrientationHint(mSensorOrientation);
     }
 
     private void prepareMediaRecorder() {
@@ -483,99 +840,44 @@ public class Camera1 extends CameraImpl {
     }
 
     void setTapToAutofocusListener(Camera.AutoFocusCallback callback) {
-        if (this.mFocus != FOCUS_TAP) {
+        if (this.mFocus != FOCUS_TAP && this.mFocus != FOCUS_TAP_WITH_MARKER) {
             throw new IllegalArgumentException("Please set the camera to FOCUS_TAP.");
         }
 
-        this.mAutofocusCallback = callback;
+        mFocusController.setAutoFocusCallback(callback);
     }
 
     private int getFocusAreaSize() {
         return FOCUS_AREA_SIZE_DEFAULT;
     }
 
-    private int getFocusMeteringAreaWeight() {
-        return FOCUS_METERING_AREA_WEIGHT_DEFAULT;
-    }
-
     private void detachFocusTapListener() {
-        mPreview.getView().setOnTouchListener(null);
+        mFocusController.detach();
     }
 
     private void attachFocusTapListener() {
-        mPreview.getView().setOnTouchListener(new View.OnTouchListener() {
-            @Override
-            public boolean onTouch(View v, MotionEvent event) {
-                if (event.getAction() == MotionEvent.ACTION_UP) {
-                    if (mCamera != null) {
-
-                        Camera.Parameters parameters = mCamera.getParameters();
-                        if (parameters.getMaxNumMeteringAreas() > 0) {
-                            Rect rect = calculateFocusArea(event.getX(), event.getY());
-
-                            parameters.setFocusMode(Camera.Parameters.FOCUS_MODE_AUTO);
-                            List<Camera.Area> meteringAreas = new ArrayList<>();
-                            meteringAreas.add(new Camera.Area(rect, getFocusMeteringAreaWeight()));
-                            parameters.setFocusAreas(meteringAreas);
-                            parameters.setMeteringAreas(meteringAreas);
-
-                            mCamera.setParameters(parameters);
-                            mCamera.autoFocus(new Camera.AutoFocusCallback() {
-                                @Override
-                                public void onAutoFocus(boolean success, Camera camera) {
-                                    camera.cancelAutoFocus();
-                                    Camera.Parameters params = camera.getParameters();
-                                    if (params.getFocusMode() != Camera.Parameters.FOCUS_MODE_CONTINUOUS_PICTURE) {
-                                        params.setFocusMode(Camera.Parameters.FOCUS_MODE_CONTINUOUS_PICTURE);
-                                        params.setFocusAreas(null);
-                                        params.setMeteringAreas(null);
-                                        camera.setParameters(params);
-                                    }
-
-                                    if (mAutofocusCallback != null) {
-                                        mAutofocusCallback.onAutoFocus(success, camera);
-                                    }
-                                }
-                            });
-                        } else {
-                            mCamera.autoFocus(new Camera.AutoFocusCallback() {
-                                @Override
-                                public void onAutoFocus(boolean success, Camera camera) {
-                                    if (mAutofocusCallback != null) {
-                                        mAutofocusCallback.onAutoFocus(success, camera);
-                                    }
-                                }
-                            });
-                        }
-                    }
-                }
-                return true;
-            }
-        });
-    }
+        mFocusController.attach(mPreview.getView());
+    }
+
+    // Metering areas are in sensor coordinates, -1000..1000 on both axes, unaffected by display
+    // rotation and mirroring, so the touch point goes through the same mapping as frames.
+    private void calculateFocusArea(float x, float y, Rect out) {
+        float centerX = x / mPreview.getContainerWidth();
+        float centerY = y / mPreview.getContainerHeight();
+        if (mViewTransform != null) {
+            mFocusPoint.set(x, y, x, y);
+            mViewTransform.mapViewToFrame(mFocusPoint, mFocusPoint);
+            centerX = mFocusPoint.left;
+            centerY = mFocusPoint.top;
+        }
 
-    private Rect calculateFocusArea(float x, float y) {
-        int centerX = clamp(Float.valueOf((x / mPreview.getView().getWidth()) * 2000 - 1000).intValue(), getFocusAreaSize());
-        int centerY = clamp(Float.valueOf((y / mPreview.getView().getHeight()) * 2000 - 1000).intValue(), getFocusAreaSize());
-        return new Rect(
-                centerX - getFocusAreaSize() / 2,
-                centerY - getFocusAreaSize() / 2,
-                centerX + getFocusAreaSize() / 2,
-                centerY + getFocusAreaSize() / 2
-        );
+        int areaSize = getFocusAreaSize();
+        int left = clamp(Math.round(centerX * 2000 - 1000) - areaSize / 2, areaSize);
+        int top = clamp(Math.round(centerY * 2000 - 1000) - areaSize / 2, areaSize);
+        out.set(left, top, left + areaSize, top + areaSize);
     }
 
-    private int clamp(int touchCoordinateInCameraReper, int focusAreaSize) {
-        int result;
-        if (Math.abs(touchCoordinateInCameraReper) + focusAreaSize / 2 > 1000) {
-            if (touchCoordinateInCameraReper > 0) {
-                result = 1000 - focusAreaSize / 2;
-            } else {
-                result = -1000 + focusAreaSize / 2;
-            }
-        } else {
-            result = touchCoordinateInCameraReper - focusAreaSize / 2;
-        }
-        return result;
+    private int clamp(int start, int focusAreaSize) {
+        return Math.max(-1000, Math.min(1000 - focusAreaSize, start));
     }
 }
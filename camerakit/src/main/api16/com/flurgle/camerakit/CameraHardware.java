@@ -0,0 +1,84 @@
+package com.flurgle.camerakit;
+
+import android.graphics.SurfaceTexture;
+import android.hardware.Camera;
+import android.view.SurfaceHolder;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The subset of {@link android.hardware.Camera} that {@link Camera1} relies on. Parameter
+ * setters are staged locally and only reach the device on {@link #commitParameters()}.
+ */
+@SuppressWarnings("deprecation")
+interface CameraHardware {
+
+    interface ShutterCallback {
+        void onShutter();
+    }
+
+    interface PictureCallback {
+        void onPictureTaken(byte[] data);
+    }
+
+    interface PreviewCallback {
+        void onPreviewFrame(byte[] data);
+    }
+
+    interface AutoFocusCallback {
+        void onAutoFocus(boolean success);
+    }
+
+    int getNumberOfCameras();
+    int getFacing(int cameraId);
+    int getOrientation(int cameraId);
+
+    void open(int cameraId);
+
+    /**
+     * Takes over the camera {@code other} opened, along with its loaded parameters, leaving
+     * {@code other} closed. Returns false if this instance is already open or can't hold it.
+     */
+    boolean adopt(CameraHardware other);
+
+    void release();
+    boolean isOpened();
+    Camera getCamera();
+
+    void loadParameters();
+    void commitParameters();
+
+    List<Size> getSupportedPreviewSizes();
+    List<Size> getSupportedPictureSizes();
+    List<String> getSupportedFocusModes();
+    List<String> getSupportedFlashModes();
+    int getMaxNumMeteringAreas();
+
+    Size getPreviewSize();
+    int getPreviewFormat();
+
+    void setPreviewSize(int width, int height);
+    void setPreviewFormat(int format);
+    void setPictureSize(int width, int height);
+    void setRotation(int rotation);
+    void setFocusMode(String focusMode);
+    String getFocusMode();
+    void setFlashMode(String flashMode);
+    void setFocusArea(int left, int top, int right, int bottom, int weight);
+    void clearFocusArea();
+
+    void setDisplayOrientation(int degrees);
+    void setPreviewTexture(SurfaceTexture surfaceTexture) throws IOException;
+    void setPreviewDisplay(SurfaceHolder surfaceHolder) throws IOException;
+    void startPreview();
+    void stopPreview();
+
+    void takePicture(ShutterCallback shutter, PictureCallback postview, PictureCallback jpeg);
+    void setOneShotPreviewCallback(PreviewCallback callback);
+    void setPreviewCallbackWithBuffer(PreviewCallback callback);
+    void addCallbackBuffer(byte[] buffer);
+    void autoFocus(AutoFocusCallback callback);
+    void cancelAutoFocus();
+
+}
@@ -0,0 +1,248 @@
+package com.flurgle.camerakit;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.graphics.ImageFormat;
+import android.hardware.Camera;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v4.content.ContextCompat;
+import android.support.v4.hardware.display.DisplayManagerCompat;
+import android.view.Display;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static com.flurgle.camerakit.CameraKit.Constants.FLASH_OFF;
+import static com.flurgle.camerakit.CameraKit.Constants.FOCUS_CONTINUOUS;
+
+/**
+ * Opens and configures a camera ahead of the first {@link Camera1#start()}, so the open overlaps
+ * with activity startup instead of following it. One camera is held at a time, for at most
+ * {@link #HOLD_MILLIS} once it is ready; the next {@link Camera1} that opens the same camera
+ * adopts it rather than opening it again.
+ */
+final class CameraPrewarmer {
+
+    static final long HOLD_MILLIS = 3000;
+
+    private static final Object sLock = new Object();
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+    private static Prewarm sPrewarm;
+
+    private CameraPrewarmer() {
+    }
+
+    static void prewarm(Context context, @Facing int facing) {
+        int permissionCheck = ContextCompat.checkSelfPermission(context, Manifest.permission.CAMERA);
+        if (permissionCheck != PackageManager.PERMISSION_GRANTED) {
+            return;
+        }
+
+        Display display = DisplayManagerCompat.getInstance(context).getDisplay(Display.DEFAULT_DISPLAY);
+        int displayOrientation = display != null
+                ? DisplayOrientationDetector.DISPLAY_ORIENTATIONS.get(display.getRotation())
+                : 0;
+        prewarm(new AndroidCameraHardware(), facing, displayOrientation, HOLD_MILLIS);
+    }
+
+    /**
+     * Opens the camera for {@code facing} on {@code hardware} from a background thread. Does
+     * nothing while another camera is warming up or held.
+     */
+    static void prewarm(CameraHardware hardware, @Facing int facing, int displayOrientation, final long holdMillis) {
+        final int internalFacing = new ConstantMapper.Facing(facing).map();
+        if (internalFacing == -1) {
+            return;
+        }
+
+        final Prewarm prewarm = new Prewarm(hardware, displayOrientation);
+        synchronized (sLock) {
+            if (sPrewarm != null) {
+                return;
+            }
+            sPrewarm = prewarm;
+        }
+
+        // A thread without a looper has the camera deliver its callbacks on the main looper,
+        // the same as a camera opened by CameraView itself.
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                prewarm.open(internalFacing);
+                if (prewarm.isOpened()) {
+                    sMainHandler.postDelayed(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (remove(prewarm)) {
+                                prewarm.release();
+                            }
+                        }
+                    }, holdMillis);
+                } else {
+                    remove(prewarm);
+                }
+            }
+        }).start();
+    }
+
+    /**
+     * Hands over the held camera if it is {@code cameraId}, first waiting for a prewarm still in
+     * flight, since a second open of the same camera would fail. A held camera with a different
+     * id is released so it can't block the open that follows.
+     */
+    static Prewarm take(int cameraId) {
+        Prewarm prewarm;
+        synchronized (sLock) {
+            prewarm = sPrewarm;
+            sPrewarm = null;
+        }
+
+        if (prewarm == null) {
+            return null;
+        }
+
+        prewarm.await();
+        if (!prewarm.isOpened()) {
+            return null;
+        } else if (prewarm.getCameraId() != cameraId) {
+            prewarm.release();
+            return null;
+        }
+        return prewarm;
+    }
+
+    private static boolean remove(Prewarm prewarm) {
+        synchronized (sLock) {
+            if (sPrewarm != prewarm) {
+                return false;
+            }
+            sPrewarm = null;
+            return true;
+        }
+    }
+
+    /**
+     * A camera opened and configured the way {@link Camera1} would for the given display
+     * orientation, with continuous focus and the flash off.
+     */
+    static final class Prewarm {
+
+        private final CameraHardware mHardware;
+        private final int mDisplayOrientation;
+        private final CountDownLatch mReady = new CountDownLatch(1);
+
+        private volatile boolean mOpened;
+        private int mCameraId = -1;
+        private Size mCaptureSize;
+        private int mCaptureRotation;
+        private int mFocus = -1;
+        private int mFlash = -1;
+
+        Prewarm(CameraHardware hardware, int displayOrientation) {
+            mHardware = hardware;
+            mDisplayOrientation = displayOrientation;
+        }
+
+        CameraHardware getHardware() {
+            return mHardware;
+        }
+
+        int getCameraId() {
+            return mCameraId;
+        }
+
+        Size getCaptureSize() {
+            return mCaptureSize;
+        }
+
+        int getCaptureRotation() {
+            return mCaptureRotation;
+        }
+
+        boolean isOpened() {
+            return mOpened;
+        }
+
+        /**
+         * Whether the camera is already set up the way {@link Camera1} would set it up.
+         */
+        boolean matches(int displayOrientation, @Focus int focus, @Flash int flash) {
+            return mDisplayOrientation == displayOrientation && mFocus == focus && mFlash == flash;
+        }
+
+        void release() {
+            mOpened = false;
+            mHardware.release();
+        }
+
+        private void await() {
+            try {
+                mReady.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void open(int internalFacing) {
+            try {
+                int sensorOrientation = 0;
+                for (int i = 0, count = mHardware.getNumberOfCameras(); i < count; i++) {
+                    if (mHardware.getFacing(i) == internalFacing) {
+                        mCameraId = i;
+                        sensorOrientation = mHardware.getOrientation(i);
+                        break;
+                    }
+                }
+                if (mCameraId == -1) {
+                    return;
+                }
+
+                mHardware.open(mCameraId);
+                mHardware.loadParameters();
+
+                mCaptureSize = Camera1.chooseCaptureSize(mHardware);
+                if (mCaptureSize == null) {
+                    mHardware.release();
+                    return;
+                }
+
+                int width = Math.max(mCaptureSize.getWidth(), mCaptureSize.getHeight());
+                int height = Math.min(mCaptureSize.getWidth(), mCaptureSize.getHeight());
+                mHardware.setPreviewSize(width, height);
+                mHardware.setPreviewFormat(ImageFormat.NV21);
+                mHardware.setPictureSize(width, height);
+
+                mCaptureRotation = Camera1.calculateCaptureRotation(internalFacing, sensorOrientation, mDisplayOrientation);
+                mHardware.setRotation(mCaptureRotation);
+
+                List<String> focusModes = mHardware.getSupportedFocusModes();
+                if (focusModes != null && focusModes.contains(Camera.Parameters.FOCUS_MODE_CONTINUOUS_PICTURE)) {
+                    mHardware.setFocusMode(Camera.Parameters.FOCUS_MODE_CONTINUOUS_PICTURE);
+                    mFocus = FOCUS_CONTINUOUS;
+                }
+
+                List<String> flashModes = mHardware.getSupportedFlashModes();
+                if (flashModes != null && flashModes.contains(Camera.Parameters.FLASH_MODE_OFF)) {
+                    mHardware.setFlashMode(Camera.Parameters.FLASH_MODE_OFF);
+                    mFlash = FLASH_OFF;
+                }
+
+                mHardware.commitParameters();
+                mHardware.setDisplayOrientation(
+                        Camera1.calculateCameraRotation(internalFacing, sensorOrientation, mDisplayOrientation)
+                );
+                mOpened = true;
+            } catch (RuntimeException e) {
+                // The camera is busy or disabled. Whoever starts next opens it the usual way.
+                e.printStackTrace();
+                mHardware.release();
+            } finally {
+                mReady.countDown();
+            }
+        }
+
+    }
+
+}
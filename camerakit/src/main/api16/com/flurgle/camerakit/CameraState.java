@@ -0,0 +1,83 @@
+package com.flurgle.camerakit;
+
+import android.hardware.Camera;
+
+/**
+ * Immutable view of the open camera's configuration. {@link Camera1} publishes a new instance
+ * through a volatile field whenever the configuration changes, so callback and worker threads
+ * read a consistent set of values without locks and without going back to the camera.
+ */
+final class CameraState {
+
+    static final CameraState CLOSED = new CameraState(false, -1, Camera.CameraInfo.CAMERA_FACING_BACK, 0, 0, null, 0, null, 0);
+
+    private final boolean mOpened;
+    private final int mCameraId;
+    private final int mSensorFacing;
+    private final int mSensorOrientation;
+    private final int mDisplayOrientation;
+    private final Size mPreviewSize;
+    private final int mPreviewFormat;
+    private final Size mCaptureSize;
+    private final int mCaptureRotation;
+
+    CameraState(boolean opened, int cameraId, int sensorFacing, int sensorOrientation, int displayOrientation,
+                Size previewSize, int previewFormat, Size captureSize, int captureRotation) {
+        mOpened = opened;
+        mCameraId = cameraId;
+        mSensorFacing = sensorFacing;
+        mSensorOrientation = sensorOrientation;
+        mDisplayOrientation = displayOrientation;
+        mPreviewSize = previewSize;
+        mPreviewFormat = previewFormat;
+        mCaptureSize = captureSize;
+        mCaptureRotation = captureRotation;
+    }
+
+    boolean isOpened() {
+        return mOpened;
+    }
+
+    int getCameraId() {
+        return mCameraId;
+    }
+
+    int getSensorFacing() {
+        return mSensorFacing;
+    }
+
+    boolean isFrontFacing() {
+        return mSensorFacing == Camera.CameraInfo.CAMERA_FACING_FRONT;
+    }
+
+    int getSensorOrientation() {
+        return mSensorOrientation;
+    }
+
+    int getDisplayOrientation() {
+        return mDisplayOrientation;
+    }
+
+    /**
+     * Size of preview frames, or null while the camera is closed.
+     */
+    Size getPreviewSize() {
+        return mPreviewSize;
+    }
+
+    int getPreviewFormat() {
+        return mPreviewFormat;
+    }
+
+    Size getCaptureSize() {
+        return mCaptureSize;
+    }
+
+    /**
+     * Clockwise rotation of captured pictures.
+     */
+    int getCaptureRotation() {
+        return mCaptureRotation;
+    }
+
+}
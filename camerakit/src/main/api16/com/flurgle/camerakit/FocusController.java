@@ -0,0 +1,190 @@
+package com.flurgle.camerakit;
+
+import android.graphics.Rect;
+import android.hardware.Camera;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+
+/**
+ * Runs tap to focus cycles. A new tap cancels the cycle in flight, and taps that follow the last
+ * focus within {@link #DEBOUNCE_MILLIS} are folded into a single cycle at the latest point. The
+ * area, listeners and callbacks are allocated once and reused for every tap.
+ */
+class FocusController {
+
+    static final long DEBOUNCE_MILLIS = 150;
+
+    interface AreaMapper {
+
+        /**
+         * Writes the metering area for a tap at view coordinates into {@code out}.
+         */
+        void mapFocusArea(float x, float y, Rect out);
+
+    }
+
+    private final CameraHardware mHardware;
+    private final AreaMapper mAreaMapper;
+    private final int mAreaWeight;
+    private final Rect mArea = new Rect();
+
+    private View mView;
+    private FocusMarkerLayout mMarker;
+    private Camera.AutoFocusCallback mAutoFocusCallback;
+
+    private float mPendingX;
+    private float mPendingY;
+    private boolean mPending;
+    private boolean mFocusing;
+    private long mLastFocusMillis;
+
+    private final View.OnTouchListener mTouchListener = new View.OnTouchListener() {
+        @Override
+        public boolean onTouch(View v, MotionEvent event) {
+            if (event.getAction() == MotionEvent.ACTION_UP) {
+                // Taps arrive in the preview view's own coordinates. A SurfaceView preview is
+                // laid out larger than its parent and centered, so shift them into the parent,
+                // which the view transform and the marker both work in.
+                onTap(event.getX() + v.getLeft(), event.getY() + v.getTop());
+            }
+            return true;
+        }
+    };
+
+    private final Runnable mDeferredFocus = new Runnable() {
+        @Override
+        public void run() {
+            if (mPending) {
+                focus();
+            }
+        }
+    };
+
+    private final CameraHardware.AutoFocusCallback mFocusDone = new CameraHardware.AutoFocusCallback() {
+        @Override
+        public void onAutoFocus(boolean success) {
+            onFocusDone(success);
+        }
+    };
+
+    FocusController(CameraHardware hardware, AreaMapper areaMapper, int areaWeight) {
+        mHardware = hardware;
+        mAreaMapper = areaMapper;
+        mAreaWeight = areaWeight;
+    }
+
+    void attach(View view) {
+        if (mView != view) {
+            detach();
+        }
+
+        mView = view;
+        if (mView != null) {
+            mView.setOnTouchListener(mTouchListener);
+        }
+    }
+
+    void detach() {
+        cancel();
+        if (mView != null) {
+            mView.setOnTouchListener(null);
+            mView = null;
+        }
+    }
+
+    /**
+     * Drops any deferred tap and stops the cycle in flight without notifying the listener.
+     */
+    void cancel() {
+        mPending = false;
+        if (mView != null) {
+            mView.removeCallbacks(mDeferredFocus);
+        }
+
+        if (mFocusing) {
+            mFocusing = false;
+            if (mHardware.isOpened()) {
+                mHardware.cancelAutoFocus();
+            }
+        }
+    }
+
+    void setMarker(FocusMarkerLayout marker) {
+        mMarker = marker;
+    }
+
+    void setAutoFocusCallback(Camera.AutoFocusCallback callback) {
+        mAutoFocusCallback = callback;
+    }
+
+    /**
+     * Focuses at a point in the coordinates of the preview's parent.
+     */
+    void onTap(float x, float y) {
+        if (!mHardware.isOpened()) {
+            return;
+        }
+
+        if (mMarker != null) {
+            mMarker.focus(x, y);
+        }
+
+        mPendingX = x;
+        mPendingY = y;
+        long wait = mLastFocusMillis + DEBOUNCE_MILLIS - SystemClock.uptimeMillis();
+        if (wait <= 0 || mView == null) {
+            if (mView != null) {
+                mView.removeCallbacks(mDeferredFocus);
+            }
+            focus();
+        } else if (!mPending) {
+            mPending = true;
+            mView.postDelayed(mDeferredFocus, wait);
+        }
+    }
+
+    private void focus() {
+        mPending = false;
+        if (!mHardware.isOpened()) {
+            return;
+        }
+
+        // Cancelling also drops the pending callback, so the old cycle never reports back.
+        if (mFocusing) {
+            mHardware.cancelAutoFocus();
+        }
+
+        mLastFocusMillis = SystemClock.uptimeMillis();
+        if (mHardware.getMaxNumMeteringAreas() > 0) {
+            mAreaMapper.mapFocusArea(mPendingX, mPendingY, mArea);
+            mHardware.setFocusMode(Camera.Parameters.FOCUS_MODE_AUTO);
+            mHardware.setFocusArea(mArea.left, mArea.top, mArea.right, mArea.bottom, mAreaWeight);
+            mHardware.commitParameters();
+        }
+
+        mFocusing = true;
+        mHardware.autoFocus(mFocusDone);
+    }
+
+    private void onFocusDone(boolean success) {
+        if (!mFocusing) {
+            return;
+        }
+
+        mFocusing = false;
+        if (mHardware.getMaxNumMeteringAreas() > 0) {
+            mHardware.cancelAutoFocus();
+            if (!Camera.Parameters.FOCUS_MODE_CONTINUOUS_PICTURE.equals(mHardware.getFocusMode())) {
+                mHardware.setFocusMode(Camera.Parameters.FOCUS_MODE_CONTINUOUS_PICTURE);
+                mHardware.clearFocusArea();
+                mHardware.commitParameters();
+            }
+        }
+
+        if (mAutoFocusCallback != null) {
+            mAutoFocusCallback.onAutoFocus(success, mHardware.getCamera());
+        }
+    }
+
+}
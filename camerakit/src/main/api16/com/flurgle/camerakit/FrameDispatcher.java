@@ -0,0 +1,202 @@
+package com.flurgle.camerakit;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Feeds preview frames to a {@link FrameProcessor} on a worker thread through a small ring of
+ * callback buffers. A buffer goes back to the camera once its frame has been processed, so when
+ * the processor falls behind the camera simply drops frames instead of allocating.
+ */
+class FrameDispatcher implements CameraHardware.PreviewCallback {
+
+    private static final int BUFFER_COUNT = 3;
+
+    private final CameraHardware mHardware;
+    private final Frame mFrame = new Frame();
+    private final SharpnessMeter mSharpnessMeter = new SharpnessMeter();
+
+    // Serves a frame request while the buffered callback isn't installed.
+    private final CameraHardware.PreviewCallback mOneShotCallback = new CameraHardware.PreviewCallback() {
+        @Override
+        public void onPreviewFrame(byte[] data) {
+            CameraHardware.PreviewCallback request;
+            synchronized (FrameDispatcher.this) {
+                if (mRunning) {
+                    return;
+                }
+                request = mFrameRequest;
+                mFrameRequest = null;
+            }
+
+            if (request != null) {
+                request.onPreviewFrame(data);
+            }
+        }
+    };
+
+    private ExecutorService mExecutor;
+    private volatile FrameProcessor mProcessor;
+    private volatile SharpnessListener mSharpnessListener;
+    private volatile ViewTransform mViewTransform;
+    private CameraHardware.PreviewCallback mFrameRequest;
+
+    private int mWidth;
+    private int mHeight;
+    private int mFormat;
+    private int mRotation;
+    private volatile int mGeneration;
+    private boolean mRunning;
+
+    FrameDispatcher(CameraHardware hardware) {
+        mHardware = hardware;
+    }
+
+    void setProcessor(FrameProcessor processor) {
+        mProcessor = processor;
+    }
+
+    /**
+     * Preview geometry handed to frames so processors can map view coordinates onto them. May
+     * be null while the preview has no size.
+     */
+    void setViewTransform(ViewTransform viewTransform) {
+        mViewTransform = viewTransform;
+    }
+
+    void setSharpnessListener(SharpnessListener sharpnessListener) {
+        mSharpnessListener = sharpnessListener;
+    }
+
+    /**
+     * Whether anything consumes frames, so the buffered callback is worth running.
+     */
+    boolean hasConsumers() {
+        return mProcessor != null || mSharpnessListener != null;
+    }
+
+    synchronized boolean isRunning() {
+        return mRunning;
+    }
+
+    synchronized void start(Size previewSize, int format, int rotation) {
+        if (!hasConsumers()) {
+            return;
+        }
+
+        mWidth = previewSize.getWidth();
+        mHeight = previewSize.getHeight();
+        mFormat = format;
+        mRotation = rotation;
+        mGeneration++;
+
+        // Fresh buffers each run, since one may still be held by the worker from the last run.
+        // This also replaces the one-shot callback; a pending frame request is served from the
+        // buffered frames instead.
+        int bufferSize = mWidth * mHeight * 3 / 2;
+        mHardware.setPreviewCallbackWithBuffer(this);
+        for (int i = 0; i < BUFFER_COUNT; i++) {
+            mHardware.addCallbackBuffer(new byte[bufferSize]);
+        }
+        mRunning = true;
+    }
+
+    synchronized void stop() {
+        if (!mRunning) {
+            return;
+        }
+
+        mRunning = false;
+        mGeneration++;
+        mHardware.setPreviewCallbackWithBuffer(null);
+        if (mFrameRequest != null) {
+            mHardware.setOneShotPreviewCallback(mOneShotCallback);
+        }
+    }
+
+    /**
+     * Hands the next frame to {@code callback} on the camera thread. While running this is a copy
+     * of a buffered frame, so the buffered callback stays in place; otherwise a one-shot callback
+     * serves it. The request survives {@link #stop()} and {@link #start(Size, int, int)}.
+     */
+    synchronized void requestFrame(CameraHardware.PreviewCallback callback) {
+        mFrameRequest = callback;
+        if (!mRunning) {
+            mHardware.setOneShotPreviewCallback(mOneShotCallback);
+        }
+    }
+
+    /**
+     * Drops a pending frame request, for when the camera is closing.
+     */
+    synchronized void cancelFrameRequest() {
+        mFrameRequest = null;
+    }
+
+    @Override
+    public void onPreviewFrame(final byte[] data) {
+        CameraHardware.PreviewCallback request;
+        final int generation;
+        synchronized (this) {
+            request = mFrameRequest;
+            mFrameRequest = null;
+            generation = mGeneration;
+        }
+
+        if (request != null) {
+            byte[] copy = new byte[data.length];
+            System.arraycopy(data, 0, copy, 0, data.length);
+            request.onPreviewFrame(copy);
+        }
+
+        final long timestamp = System.nanoTime();
+        getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                process(data, generation, timestamp);
+            }
+        });
+    }
+
+    private void process(byte[] data, int generation, long timestamp) {
+        FrameProcessor processor = mProcessor;
+        SharpnessListener sharpnessListener = mSharpnessListener;
+        try {
+            if (generation != mGeneration) {
+                return;
+            }
+
+            if (sharpnessListener != null) {
+                mSharpnessMeter.measure(data, mWidth, mHeight);
+                sharpnessListener.onSharpness(mSharpnessMeter.getSharpness(), mSharpnessMeter.getMotion(), timestamp);
+            }
+
+            if (processor != null) {
+                mFrame.set(data, mWidth, mHeight, mFormat, mRotation, timestamp, mViewTransform);
+                processor.process(mFrame);
+            }
+        } finally {
+            synchronized (this) {
+                if (mRunning && generation == mGeneration) {
+                    mHardware.addCallbackBuffer(data);
+                }
+            }
+        }
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (mExecutor == null) {
+            mExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "CameraKit-Frames");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return mExecutor;
+    }
+
+}
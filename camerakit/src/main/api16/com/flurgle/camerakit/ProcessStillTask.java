@@ -1,28 +1,44 @@
 package com.flurgle.camerakit;
 
+import android.graphics.ImageFormat;
 import android.graphics.YuvImage;
-import android.hardware.Camera;
+
+import static com.flurgle.camerakit.CameraKit.Constants.STAGE_ROTATION_DONE;
 
 class ProcessStillTask implements Runnable {
 
-    private byte[] data;
-    private Camera camera;
-    private int rotation;
-    private OnStillProcessedListener onStillProcessedListener;
+    private final byte[] data;
+    private final int width;
+    private final int height;
+    private final int format;
+    private final int rotation;
+    private final boolean mirror;
+    private final Capture capture;
+    private final OnStillProcessedListener onStillProcessedListener;
 
-    public ProcessStillTask(byte[] data, Camera camera, int rotation, OnStillProcessedListener onStillProcessedListener) {
+    public ProcessStillTask(byte[] data, int width, int height, int format, int rotation, boolean mirror, Capture capture, OnStillProcessedListener onStillProcessedListener) {
         this.data = data;
-        this.camera = camera;
+        this.width = width;
+        this.height = height;
+        this.format = format;
         this.rotation = rotation;
+        this.mirror = mirror;
+        this.capture = capture;
         this.onStillProcessedListener = onStillProcessedListener;
     }
 
     @Override
     public void run() {
-        Camera.Parameters parameters = camera.getParameters();
-        int width = parameters.getPreviewSize().width;
-        int height = parameters.getPreviewSize().height;
-        byte[] rotatedData = new Rotation(data, width, height, rotation).getYuv();
+        // Rotation always produces NV21, whatever the preview format was.
+        if (capture.isExifOrientation()) {
+            byte[] nv21 = new Rotation(data, width, height, format, 0).getYuv();
+            onStillProcessedListener.onStillProcessed(new YuvImage(nv21, ImageFormat.NV21, width, height, null), rotation, mirror);
+            return;
+        }
+
+        int mirrorFlags = mirror ? Rotation.MIRROR_HORIZONTAL : Rotation.MIRROR_NONE;
+        byte[] rotatedData = new Rotation(data, width, height, format, rotation, mirrorFlags).getYuv();
+        capture.mark(STAGE_ROTATION_DONE, rotatedData.length);
 
         int postWidth;
         int postHeight;
@@ -42,13 +58,17 @@ class ProcessStillTask implements Runnable {
                 break;
         }
 
-        YuvImage yuv = new YuvImage(rotatedData, parameters.getPreviewFormat(), postWidth, postHeight, null);
+        YuvImage yuv = new YuvImage(rotatedData, ImageFormat.NV21, postWidth, postHeight, null);
 
-        onStillProcessedListener.onStillProcessed(yuv);
+        onStillProcessedListener.onStillProcessed(yuv, 0, false);
     }
 
     interface OnStillProcessedListener {
-        void onStillProcessed(YuvImage yuv);
+        /**
+         * {@code rotation} and {@code mirrored} are left for Exif orientation, or 0 and false when
+         * the pixels were turned upright.
+         */
+        void onStillProcessed(YuvImage yuv, int rotation, boolean mirrored);
     }
 
 }
\ No newline at end of file
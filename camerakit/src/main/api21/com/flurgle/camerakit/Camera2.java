@@ -36,6 +36,16 @@ class Camera2 extends CameraImpl {
             public void onSurfaceChanged() {
 
             }
+
+            @Override
+            public void onSurfaceDestroyed() {
+
+            }
+
+            @Override
+            public void onFirstFrameRendered() {
+
+            }
         });
 
         mCameraManager = (CameraManager) context.getSystemService(Context.CAMERA_SERVICE);
@@ -116,7 +126,17 @@ class Camera2 extends CameraImpl {
     }
 
     @Override
-    void setMethod(@Method int method) {
+    void setFocusMarker(FocusMarkerLayout marker) {
+
+    }
+
+    @Override
+    void setFrameProcessor(FrameProcessor frameProcessor) {
+
+    }
+
+    @Override
+    void setSharpnessListener(SharpnessListener sharpnessListener) {
 
     }
 
@@ -131,7 +151,7 @@ class Camera2 extends CameraImpl {
     }
 
     @Override
-    void captureImage() {
+    void captureImage(Capture capture) {
 
     }
 
@@ -6,6 +6,7 @@ abstract class CameraImpl {
 
     protected final CameraListener mCameraListener;
     protected final PreviewImpl mPreview;
+    protected final PhaseTracer mTracer = new PhaseTracer();
 
     CameraImpl(CameraListener callback, PreviewImpl preview) {
         mCameraListener = callback;
@@ -21,11 +22,13 @@ abstract class CameraImpl {
     abstract void setFacing(@Facing int facing);
     abstract void setFlash(@Flash int flash);
     abstract void setFocus(@Focus int focus);
-    abstract void setMethod(@Method int method);
     abstract void setZoom(@Zoom int zoom);
+    abstract void setFocusMarker(FocusMarkerLayout marker);
+    abstract void setFrameProcessor(FrameProcessor frameProcessor);
+    abstract void setSharpnessListener(SharpnessListener sharpnessListener);
     abstract void setVideoQuality(@VideoQuality int videoQuality);
 
-    abstract void captureImage();
+    abstract void captureImage(Capture capture);
     abstract void startVideo();
     abstract void endVideo();
 
@@ -33,4 +36,8 @@ abstract class CameraImpl {
     abstract Size getPreviewResolution();
     abstract boolean isCameraOpened();
 
+    void setMetrics(CameraMetrics metrics) {
+        mTracer.setMetrics(metrics);
+    }
+
 }
@@ -0,0 +1,215 @@
+package com.flurgle.camerakit;
+
+import android.graphics.Bitmap;
+import android.graphics.YuvImage;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+
+/**
+ * Fans camera events out to any number of listeners. Registrations live in a copy-on-write
+ * array, so dispatch takes no lock and allocates nothing for listeners called in place.
+ * Listeners registered with an executor get their own serial queue on it: events reach each
+ * listener in order, and a slow listener only holds up its own queue.
+ */
+class CameraListenerRegistry extends CameraListener {
+
+    private static final int EVENT_CAMERA_OPENED = 0;
+    private static final int EVENT_CAMERA_CLOSED = 1;
+    private static final int EVENT_THUMBNAIL_READY = 2;
+    private static final int EVENT_PICTURE_JPEG = 3;
+    private static final int EVENT_PICTURE_YUV = 4;
+    private static final int EVENT_PICTURE_BITMAP = 5;
+    private static final int EVENT_VIDEO_TAKEN = 6;
+
+    private static final Registration[] EMPTY = new Registration[0];
+
+    // Stands in for a null argument, which the event queues can't hold.
+    private static final Object NO_ARGUMENT = new Object();
+
+    private volatile Registration[] mRegistrations = EMPTY;
+
+    /**
+     * Adds {@code listener}, or moves it to {@code executor} if it is already registered. A null
+     * executor calls the listener on the thread that raised the event. Events still queued on
+     * the old executor are dropped, so they can't overlap with events on the new one.
+     */
+    synchronized void add(CameraListener listener, Executor executor) {
+        Registration[] current = mRegistrations;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].mListener == listener) {
+                current[i].mRemoved = true;
+                Registration[] updated = current.clone();
+                updated[i] = new Registration(listener, executor);
+                mRegistrations = updated;
+                return;
+            }
+        }
+
+        Registration[] updated = new Registration[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, current.length);
+        updated[current.length] = new Registration(listener, executor);
+        mRegistrations = updated;
+    }
+
+    /**
+     * Removes {@code listener}. It gets no further events once this returns, including events
+     * still queued on its executor or a dispatch already under way on another listener.
+     */
+    synchronized void remove(CameraListener listener) {
+        Registration[] current = mRegistrations;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].mListener == listener) {
+                current[i].mRemoved = true;
+                Registration[] updated = new Registration[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                mRegistrations = updated;
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void onCameraOpened() {
+        dispatch(EVENT_CAMERA_OPENED, null);
+    }
+
+    @Override
+    public void onCameraClosed() {
+        dispatch(EVENT_CAMERA_CLOSED, null);
+    }
+
+    @Override
+    public void onThumbnailReady(Bitmap thumbnail) {
+        dispatch(EVENT_THUMBNAIL_READY, thumbnail);
+    }
+
+    @Override
+    public void onPictureTaken(byte[] jpeg) {
+        dispatch(EVENT_PICTURE_JPEG, jpeg);
+    }
+
+    @Override
+    public void onPictureTaken(YuvImage yuv) {
+        dispatch(EVENT_PICTURE_YUV, yuv);
+    }
+
+    @Override
+    public void onPictureTaken(Bitmap bitmap) {
+        dispatch(EVENT_PICTURE_BITMAP, bitmap);
+    }
+
+    @Override
+    public void onVideoTaken(File video) {
+        dispatch(EVENT_VIDEO_TAKEN, video);
+    }
+
+    private void dispatch(int event, Object argument) {
+        Registration[] registrations = mRegistrations;
+        for (int i = 0; i < registrations.length; i++) {
+            registrations[i].post(event, argument);
+        }
+    }
+
+    private static void deliver(CameraListener listener, int event, Object argument) {
+        switch (event) {
+            case EVENT_CAMERA_OPENED:
+                listener.onCameraOpened();
+                break;
+
+            case EVENT_CAMERA_CLOSED:
+                listener.onCameraClosed();
+                break;
+
+            case EVENT_THUMBNAIL_READY:
+                listener.onThumbnailReady((Bitmap) argument);
+                break;
+
+            case EVENT_PICTURE_JPEG:
+                listener.onPictureTaken((byte[]) argument);
+                break;
+
+            case EVENT_PICTURE_YUV:
+                listener.onPictureTaken((YuvImage) argument);
+                break;
+
+            case EVENT_PICTURE_BITMAP:
+                listener.onPictureTaken((Bitmap) argument);
+                break;
+
+            case EVENT_VIDEO_TAKEN:
+                listener.onVideoTaken((File) argument);
+                break;
+        }
+    }
+
+    private static class Registration implements Runnable {
+
+        private final CameraListener mListener;
+        private final Executor mExecutor;
+
+        // Pending events as pairs of event id and argument, drained one at a time.
+        private final ArrayDeque<Object> mQueue;
+        private boolean mScheduled;
+        private volatile boolean mRemoved;
+
+        Registration(CameraListener listener, Executor executor) {
+            mListener = listener;
+            mExecutor = executor;
+            mQueue = executor != null ? new ArrayDeque<>() : null;
+        }
+
+        void post(int event, Object argument) {
+            if (mRemoved) {
+                return;
+            }
+
+            if (mExecutor == null) {
+                deliver(mListener, event, argument);
+                return;
+            }
+
+            synchronized (this) {
+                mQueue.add(event);
+                mQueue.add(argument != null ? argument : NO_ARGUMENT);
+                if (mScheduled) {
+                    return;
+                }
+                mScheduled = true;
+            }
+            mExecutor.execute(this);
+        }
+
+        @Override
+        public void run() {
+            int event;
+            Object argument;
+            synchronized (this) {
+                event = (Integer) mQueue.poll();
+                argument = mQueue.poll();
+            }
+            if (argument == NO_ARGUMENT) {
+                argument = null;
+            }
+
+            try {
+                if (!mRemoved) {
+                    deliver(mListener, event, argument);
+                }
+            } finally {
+                boolean more;
+                synchronized (this) {
+                    more = !mQueue.isEmpty();
+                    mScheduled = more;
+                }
+                if (more) {
+                    mExecutor.execute(this);
+                }
+            }
+        }
+
+    }
+
+}
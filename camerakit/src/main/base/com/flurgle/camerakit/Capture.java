@@ -0,0 +1,225 @@
+package com.flurgle.camerakit;
+
+import android.graphics.Bitmap;
+import android.graphics.YuvImage;
+
+import static com.flurgle.camerakit.CameraKit.Constants.STAGE_ABORTED;
+import static com.flurgle.camerakit.CameraKit.Constants.STAGE_CALLBACK_DISPATCHED;
+
+/**
+ * One requested picture. Everything that shapes the output is copied in from the view before
+ * the capture is handed to the camera and never changed afterwards, so later setting changes
+ * can't leak into a capture in flight and processing never reads view state off the main thread.
+ */
+final class Capture {
+
+    interface Callback {
+        void onThumbnailReady(Capture capture, Bitmap thumbnail);
+        void onPictureTaken(Capture capture, byte[] jpeg);
+        /**
+         * {@code rotation} and {@code mirrored} are what the frame still needs to be upright, to
+         * be written as Exif orientation.
+         */
+        void onPictureTaken(Capture capture, YuvImage yuv, int rotation, boolean mirrored);
+    }
+
+    private final int mId;
+    private final CameraMetrics mMetrics;
+    private final Callback mCallback;
+
+    @Method
+    private int mMethod;
+    @OutputFormat
+    private int mOutputFormat;
+    private int mJpegQuality;
+    private AspectRatio mCropRatio;
+    private int mOutputWidth;
+    private int mOutputHeight;
+    private boolean mExifOrientation;
+    private boolean mMirrorFront;
+    private int mThumbnailSize;
+    private int mStillCandidates = 1;
+    private PendingCapture mPending;
+    // Set once a terminal stage has been reported.
+    private boolean mEnded;
+
+    Capture(int id, CameraMetrics metrics, Callback callback) {
+        mId = id;
+        mMetrics = metrics;
+        mCallback = callback;
+    }
+
+    int getId() {
+        return mId;
+    }
+
+    void setMethod(@Method int method) {
+        mMethod = method;
+    }
+
+    @Method
+    int getMethod() {
+        return mMethod;
+    }
+
+    void setOutputFormat(@OutputFormat int outputFormat) {
+        mOutputFormat = outputFormat;
+    }
+
+    @OutputFormat
+    int getOutputFormat() {
+        return mOutputFormat;
+    }
+
+    void setJpegQuality(int jpegQuality) {
+        mJpegQuality = jpegQuality;
+    }
+
+    int getJpegQuality() {
+        return mJpegQuality;
+    }
+
+    /**
+     * Aspect ratio of the view the output is cropped to, or null to keep the full frame.
+     */
+    void setCropRatio(AspectRatio cropRatio) {
+        mCropRatio = cropRatio;
+    }
+
+    AspectRatio getCropRatio() {
+        return mCropRatio;
+    }
+
+    void setOutputSize(int outputWidth, int outputHeight) {
+        mOutputWidth = outputWidth;
+        mOutputHeight = outputHeight;
+    }
+
+    int getOutputWidth() {
+        return mOutputWidth;
+    }
+
+    int getOutputHeight() {
+        return mOutputHeight;
+    }
+
+    boolean isDownscaled() {
+        return mOutputWidth > 0 || mOutputHeight > 0;
+    }
+
+    void setExifOrientation(boolean exifOrientation) {
+        mExifOrientation = exifOrientation;
+    }
+
+    boolean isExifOrientation() {
+        return mExifOrientation;
+    }
+
+    void setMirrorFront(boolean mirrorFront) {
+        mMirrorFront = mirrorFront;
+    }
+
+    boolean isMirrorFront() {
+        return mMirrorFront;
+    }
+
+    void setThumbnailSize(int thumbnailSize) {
+        mThumbnailSize = thumbnailSize;
+    }
+
+    int getThumbnailSize() {
+        return mThumbnailSize;
+    }
+
+    /**
+     * Number of preview frames a still capture picks the sharpest from.
+     */
+    void setStillCandidates(int stillCandidates) {
+        mStillCandidates = Math.max(1, stillCandidates);
+    }
+
+    int getStillCandidates() {
+        return mStillCandidates;
+    }
+
+    void setPending(PendingCapture pending) {
+        mPending = pending;
+        if (mMetrics != CameraMetrics.NONE) {
+            // Cancelled and timed out captures end here; a delivered one has already ended.
+            pending.addDoneListener(new Runnable() {
+                @Override
+                public void run() {
+                    mark(STAGE_ABORTED, 0);
+                }
+            });
+        }
+    }
+
+    /**
+     * Whether nobody waits for this capture any more, because its handle was cancelled or timed
+     * out. Only captures made without a handle are never abandoned.
+     */
+    boolean isAbandoned() {
+        return mPending != null && mPending.isDone();
+    }
+
+    /**
+     * Runs {@code listener} once the handle finishes, which is how a capture gets abandoned.
+     * Captures made without a handle never run it.
+     */
+    void addDoneListener(Runnable listener) {
+        if (mPending != null) {
+            mPending.addDoneListener(listener);
+        }
+    }
+
+    void complete(byte[] jpeg) {
+        if (mPending != null) {
+            mPending.complete(new CaptureResult(mId, jpeg, null));
+        }
+    }
+
+    void complete(Bitmap bitmap) {
+        if (mPending != null) {
+            mPending.complete(new CaptureResult(mId, null, bitmap));
+        }
+    }
+
+    void fail(Exception error) {
+        mark(STAGE_ABORTED, 0);
+        if (mPending != null) {
+            mPending.fail(error);
+        }
+    }
+
+    void dispatchThumbnail(Bitmap thumbnail) {
+        mCallback.onThumbnailReady(this, thumbnail);
+    }
+
+    boolean isTraced() {
+        return mMetrics != CameraMetrics.NONE;
+    }
+
+    void mark(@CaptureStage int stage, int byteCount) {
+        if (mMetrics == CameraMetrics.NONE) {
+            return;
+        }
+
+        synchronized (this) {
+            if (mEnded) {
+                return;
+            }
+            mEnded = stage == STAGE_CALLBACK_DISPATCHED || stage == STAGE_ABORTED;
+        }
+        mMetrics.onCaptureStage(mId, stage, System.nanoTime(), byteCount);
+    }
+
+    void dispatchPicture(byte[] jpeg) {
+        mCallback.onPictureTaken(this, jpeg);
+    }
+
+    void dispatchPicture(YuvImage yuv, int rotation, boolean mirrored) {
+        mCallback.onPictureTaken(this, yuv, rotation, mirrored);
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.flurgle.camerakit;
+
+import android.support.v4.os.TraceCompat;
+
+final class PhaseTracer {
+
+    private static final String[] SECTION_NAMES = {
+            "CameraKit:open",
+            "CameraKit:getParameters",
+            "CameraKit:captureResolution",
+            "CameraKit:focus",
+            "CameraKit:flash",
+            "CameraKit:displayOrientation",
+            "CameraKit:setParameters",
+            "CameraKit:attachSurface",
+            "CameraKit:startPreview",
+            "CameraKit:firstFrame",
+            "CameraKit:timeToAttach"
+    };
+
+    private volatile CameraMetrics mMetrics = CameraMetrics.NONE;
+
+    private int mDepth;
+    private long mSessionStart;
+
+    void setMetrics(CameraMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    long begin(@OpenPhase int phase) {
+        TraceCompat.beginSection(SECTION_NAMES[phase]);
+        mDepth++;
+        return System.nanoTime();
+    }
+
+    void end(@OpenPhase int phase, long startNanos) {
+        long duration = System.nanoTime() - startNanos;
+        if (mDepth > 0) {
+            mDepth--;
+            TraceCompat.endSection();
+        }
+
+        CameraMetrics metrics = mMetrics;
+        if (metrics != CameraMetrics.NONE) {
+            metrics.onOpenPhase(phase, duration);
+        }
+    }
+
+    void report(@OpenPhase int phase, long durationNanos) {
+        CameraMetrics metrics = mMetrics;
+        if (metrics != CameraMetrics.NONE) {
+            metrics.onOpenPhase(phase, durationNanos);
+        }
+    }
+
+    // Closes any sections left open when a phase threw before reaching end().
+    void abandon() {
+        while (mDepth > 0) {
+            mDepth--;
+            TraceCompat.endSection();
+        }
+    }
+
+    void beginSession() {
+        mSessionStart = System.nanoTime();
+    }
+
+    void endSession(@OpenPhase int phase) {
+        if (mSessionStart == 0) {
+            return;
+        }
+
+        long duration = System.nanoTime() - mSessionStart;
+        mSessionStart = 0;
+
+        CameraMetrics metrics = mMetrics;
+        if (metrics != CameraMetrics.NONE) {
+            metrics.onOpenPhase(phase, duration);
+        }
+    }
+
+}
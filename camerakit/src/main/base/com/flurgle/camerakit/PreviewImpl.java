@@ -9,9 +9,12 @@ abstract class PreviewImpl {
 
     interface Callback {
         void onSurfaceChanged();
+        void onSurfaceDestroyed();
+        void onFirstFrameRendered();
     }
 
     private Callback mCallback;
+    private boolean mAwaitingFirstFrame;
 
     private int mWidth;
     private int mHeight;
@@ -19,6 +22,18 @@ abstract class PreviewImpl {
     protected int mTrueWidth;
     protected int mTrueHeight;
 
+    private int mDisplayOrientation;
+
+    private final PreviewTransform mTransform = new PreviewTransform();
+    private volatile boolean mTransformPending;
+    private final Runnable mUpdateTransform = new Runnable() {
+        @Override
+        public void run() {
+            mTransformPending = false;
+            updateTransform();
+        }
+    };
+
     void setCallback(Callback callback) {
         mCallback = callback;
     }
@@ -29,14 +44,29 @@ abstract class PreviewImpl {
 
     abstract Class getOutputClass();
 
-    abstract void setDisplayOrientation(int displayOrientation);
-
     abstract boolean isReady();
 
+    protected abstract void applyTransform(PreviewTransform transform);
+
     protected void dispatchSurfaceChanged() {
         mCallback.onSurfaceChanged();
     }
 
+    protected void dispatchSurfaceDestroyed() {
+        mCallback.onSurfaceDestroyed();
+    }
+
+    void awaitFirstFrame() {
+        mAwaitingFirstFrame = true;
+    }
+
+    protected void dispatchFrameRendered() {
+        if (mAwaitingFirstFrame) {
+            mAwaitingFirstFrame = false;
+            mCallback.onFirstFrameRendered();
+        }
+    }
+
     SurfaceHolder getSurfaceHolder() {
         return null;
     }
@@ -61,32 +91,51 @@ abstract class PreviewImpl {
         return mHeight;
     }
 
+    void setDisplayOrientation(int displayOrientation) {
+        mDisplayOrientation = displayOrientation;
+        requestTransformUpdate();
+    }
+
+    int getDisplayOrientation() {
+        return mDisplayOrientation;
+    }
+
     void setTruePreviewSize(final int width, final int height) {
         this.mTrueWidth = width;
         this.mTrueHeight = height;
-        getView().post(new Runnable() {
-            @Override
-            public void run() {
-                if (width != 0 && height != 0) {
-                    AspectRatio aspectRatio = AspectRatio.of(width, height);
-                    int targetHeight = (int) (getView().getWidth() * aspectRatio.toFloat());
-                    float scaleY;
-                    if (getView().getHeight() > 0) {
-                        scaleY = (float) targetHeight / (float) getView().getHeight();
-                    } else {
-                        scaleY = 1;
-                    }
-
-                    if (scaleY > 1) {
-                        getView().setScaleX(1);
-                        getView().setScaleY(scaleY);
-                    } else {
-                        getView().setScaleX(1 / scaleY);
-                        getView().setScaleY(1);
-                    }
-                }
-            }
-        });
+        requestTransformUpdate();
+    }
+
+    // Coalesces bursts of size and orientation changes into a single pass on the UI thread.
+    private void requestTransformUpdate() {
+        if (!mTransformPending) {
+            mTransformPending = true;
+            getView().post(mUpdateTransform);
+        }
+    }
+
+    private void updateTransform() {
+        if (mTrueWidth == 0 || mTrueHeight == 0) {
+            return;
+        }
+
+        // Preview sizes are reported in sensor orientation, which is rotated a quarter turn
+        // from the display in its natural orientation.
+        boolean swap = mDisplayOrientation % 180 == 0;
+        int contentWidth = swap ? mTrueHeight : mTrueWidth;
+        int contentHeight = swap ? mTrueWidth : mTrueHeight;
+
+        if (mTransform.update(getContainerWidth(), getContainerHeight(), contentWidth, contentHeight, PreviewTransform.SCALE_CENTER_CROP)) {
+            applyTransform(mTransform);
+        }
+    }
+
+    protected int getContainerWidth() {
+        return getView().getWidth();
+    }
+
+    protected int getContainerHeight() {
+        return getView().getHeight();
     }
 
     int getTrueWidth() {
@@ -0,0 +1,84 @@
+package com.flurgle.camerakit;
+
+import android.util.Log;
+
+import static com.flurgle.camerakit.CameraKit.Constants.PHASE_ATTACH_SURFACE;
+import static com.flurgle.camerakit.CameraKit.Constants.PHASE_TIME_TO_ATTACH;
+
+/**
+ * Attaches the preview surface to the camera as soon as both sides are ready. Readiness is
+ * driven entirely by events (camera opened / released, surface changed / destroyed), so there
+ * is no polling and no retry delay.
+ */
+final class SurfaceBinding {
+
+    interface Binder {
+        void bind() throws Exception;
+    }
+
+    private static final int FLAG_CAMERA_READY = 1;
+    private static final int FLAG_SURFACE_READY = 1 << 1;
+    private static final int FLAG_BOUND = 1 << 2;
+
+    private static final int FLAGS_READY = FLAG_CAMERA_READY | FLAG_SURFACE_READY;
+
+    private final Binder mBinder;
+    private final PhaseTracer mTracer;
+
+    private int mState;
+    // When the first side became ready since the binding was last lost, or 0.
+    private long mWaitStart;
+
+    SurfaceBinding(Binder binder, PhaseTracer tracer) {
+        mBinder = binder;
+        mTracer = tracer;
+    }
+
+    synchronized void setCameraReady(boolean ready) {
+        update(FLAG_CAMERA_READY, ready);
+    }
+
+    synchronized void setSurfaceReady(boolean ready) {
+        update(FLAG_SURFACE_READY, ready);
+    }
+
+    synchronized boolean isBound() {
+        return (mState & FLAG_BOUND) != 0;
+    }
+
+    private void update(int flag, boolean set) {
+        if (set) {
+            if (mWaitStart == 0) {
+                mWaitStart = System.nanoTime();
+            }
+            mState |= flag;
+        } else {
+            // Leaving the bound state starts a new wait with the next ready event, even when
+            // the other side is still ready.
+            mState &= ~(flag | FLAG_BOUND);
+            mWaitStart = 0;
+        }
+
+        if ((mState & FLAGS_READY) == FLAGS_READY && (mState & FLAG_BOUND) == 0) {
+            bind();
+        }
+    }
+
+    private void bind() {
+        long attach = mTracer.begin(PHASE_ATTACH_SURFACE);
+        try {
+            mBinder.bind();
+            mState |= FLAG_BOUND;
+        } catch (Exception e) {
+            // Stay unbound; the next surface event will try again.
+            Log.e("CameraKit", "Failed to attach preview surface: " + e.toString());
+        } finally {
+            mTracer.end(PHASE_ATTACH_SURFACE, attach);
+        }
+
+        if ((mState & FLAG_BOUND) != 0) {
+            mTracer.report(PHASE_TIME_TO_ATTACH, System.nanoTime() - mWaitStart);
+        }
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.flurgle.camerakit;
+
+import android.content.Context;
+import android.view.Surface;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+import android.view.View;
+import android.view.ViewGroup;
+
+class SurfaceViewPreview extends PreviewImpl {
+
+    private final ViewGroup mParent;
+    private final SurfaceView mSurfaceView;
+
+    SurfaceViewPreview(Context context, ViewGroup parent) {
+        mParent = parent;
+        final View view = View.inflate(context, R.layout.surface_view, parent);
+        mSurfaceView = (SurfaceView) view.findViewById(R.id.surface_view);
+
+        final SurfaceHolder holder = mSurfaceView.getHolder();
+        holder.setType(SurfaceHolder.SURFACE_TYPE_PUSH_BUFFERS);
+        holder.addCallback(new SurfaceHolder.Callback() {
+            @Override
+            public void surfaceCreated(SurfaceHolder holder) {
+
+            }
+
+            @Override
+            public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+                setSize(width, height);
+                dispatchSurfaceChanged();
+            }
+
+            @Override
+            public void surfaceDestroyed(SurfaceHolder holder) {
+                setSize(0, 0);
+                dispatchSurfaceDestroyed();
+            }
+        });
+    }
+
+    @Override
+    Surface getSurface() {
+        return getSurfaceHolder().getSurface();
+    }
+
+    @Override
+    SurfaceHolder getSurfaceHolder() {
+        return mSurfaceView.getHolder();
+    }
+
+    @Override
+    View getView() {
+        return mSurfaceView;
+    }
+
+    @Override
+    Class getOutputClass() {
+        return SurfaceHolder.class;
+    }
+
+    @Override
+    boolean isReady() {
+        return getWidth() != 0 && getHeight() != 0;
+    }
+
+    @Override
+    void setTruePreviewSize(int width, int height) {
+        super.setTruePreviewSize(width, height);
+        if (width != 0 && height != 0) {
+            mSurfaceView.getHolder().setFixedSize(width, height);
+        }
+    }
+
+    // The surface of a SurfaceView lives in its own window and ignores view scaling, so the
+    // crop is done by laying the view out larger than the parent and centering it.
+    @Override
+    protected int getContainerWidth() {
+        return mParent.getWidth();
+    }
+
+    @Override
+    protected int getContainerHeight() {
+        return mParent.getHeight();
+    }
+
+    @Override
+    protected void applyTransform(PreviewTransform transform) {
+        int width = Math.round(mParent.getWidth() * transform.getScaleX());
+        int height = Math.round(mParent.getHeight() * transform.getScaleY());
+
+        ViewGroup.LayoutParams layoutParams = mSurfaceView.getLayoutParams();
+        if (layoutParams.width != width || layoutParams.height != height) {
+            layoutParams.width = width;
+            layoutParams.height = height;
+            mSurfaceView.setLayoutParams(layoutParams);
+        }
+    }
+
+}
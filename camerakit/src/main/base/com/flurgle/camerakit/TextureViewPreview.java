@@ -2,6 +2,7 @@ package com.flurgle.camerakit;
 
 import android.annotation.TargetApi;
 import android.content.Context;
+import android.graphics.Matrix;
 import android.graphics.SurfaceTexture;
 import android.view.Surface;
 import android.view.TextureView;
@@ -12,8 +13,7 @@ import android.view.ViewGroup;
 class TextureViewPreview extends PreviewImpl {
 
     private final TextureView mTextureView;
-
-    private int mDisplayOrientation;
+    private final Matrix mMatrix = new Matrix();
 
     TextureViewPreview(Context context, ViewGroup parent) {
         final View view = View.inflate(context, R.layout.texture_view, parent);
@@ -30,17 +30,18 @@ class TextureViewPreview extends PreviewImpl {
             public void onSurfaceTextureSizeChanged(SurfaceTexture surface, int width, int height) {
                 setSize(width, height);
                 dispatchSurfaceChanged();
-                setTruePreviewSize(mTrueWidth, mTrueHeight);
             }
 
             @Override
             public boolean onSurfaceTextureDestroyed(SurfaceTexture surface) {
                 setSize(0, 0);
+                dispatchSurfaceDestroyed();
                 return true;
             }
 
             @Override
             public void onSurfaceTextureUpdated(SurfaceTexture surface) {
+                dispatchFrameRendered();
             }
         });
     }
@@ -65,11 +66,6 @@ class TextureViewPreview extends PreviewImpl {
         return SurfaceTexture.class;
     }
 
-    @Override
-    void setDisplayOrientation(int displayOrientation) {
-        mDisplayOrientation = displayOrientation;
-    }
-
     @Override
     boolean isReady() {
         return mTextureView.getSurfaceTexture() != null;
@@ -94,4 +90,12 @@ class TextureViewPreview extends PreviewImpl {
         }
     }
 
+    // Scaling the buffer inside the view keeps the TextureView at its laid out size, so the
+    // compositor never draws more than the visible area.
+    @Override
+    protected void applyTransform(PreviewTransform transform) {
+        mMatrix.setScale(transform.getScaleX(), transform.getScaleY(), transform.getPivotX(), transform.getPivotY());
+        mTextureView.setTransform(mMatrix);
+    }
+
 }
@@ -1,9 +1,21 @@
 package com.flurgle.camerakit;
 
+import android.content.Context;
 import android.content.res.Resources;
 
 public class CameraKit {
 
+    /**
+     * Opens and configures the camera for {@code facing} on a background thread, so it is ready
+     * by the time a {@link CameraView} starts. Call it as early as {@code Application.onCreate()}
+     * or when handling the intent that leads to the camera. The next {@code CameraView} to start
+     * with that facing adopts the open camera; if none does within a few seconds, it is released.
+     * Does nothing without the camera permission.
+     */
+    public static void prewarm(Context context, @Facing int facing) {
+        CameraPrewarmer.prewarm(context, facing);
+    }
+
     static class Internal {
 
         static final int screenWidth = Resources.getSystem().getDisplayMetrics().widthPixels;
@@ -45,6 +57,33 @@ public class CameraKit {
         public static final int VIDEO_QUALITY_HIGHEST = 4;
         public static final int VIDEO_QUALITY_LOWEST = 5;
 
+        public static final int PREVIEW_TEXTURE_VIEW = 0;
+        public static final int PREVIEW_SURFACE_VIEW = 1;
+
+        public static final int OUTPUT_JPEG = 0;
+        public static final int OUTPUT_BITMAP = 1;
+
+        public static final int STAGE_COMMAND_ENQUEUED = 0;
+        public static final int STAGE_SHUTTER = 1;
+        public static final int STAGE_FRAME_RECEIVED = 2;
+        public static final int STAGE_ROTATION_DONE = 3;
+        public static final int STAGE_CROP_DONE = 4;
+        public static final int STAGE_ENCODE_DONE = 5;
+        public static final int STAGE_CALLBACK_DISPATCHED = 6;
+        public static final int STAGE_ABORTED = 7;
+
+        public static final int PHASE_OPEN = 0;
+        public static final int PHASE_GET_PARAMETERS = 1;
+        public static final int PHASE_CAPTURE_RESOLUTION = 2;
+        public static final int PHASE_FOCUS = 3;
+        public static final int PHASE_FLASH = 4;
+        public static final int PHASE_DISPLAY_ORIENTATION = 5;
+        public static final int PHASE_SET_PARAMETERS = 6;
+        public static final int PHASE_ATTACH_SURFACE = 7;
+        public static final int PHASE_START_PREVIEW = 8;
+        public static final int PHASE_FIRST_FRAME = 9;
+        public static final int PHASE_TIME_TO_ATTACH = 10;
+
     }
 
     static class Defaults {
@@ -56,9 +95,17 @@ public class CameraKit {
         static final int DEFAULT_METHOD = Constants.METHOD_STANDARD;
         static final int DEFAULT_PERMISSIONS = Constants.PERMISSIONS_STRICT;
         static final int DEFAULT_VIDEO_QUALITY = Constants.VIDEO_QUALITY_480P;
+        static final int DEFAULT_PREVIEW = Constants.PREVIEW_TEXTURE_VIEW;
+        static final int DEFAULT_OUTPUT_FORMAT = Constants.OUTPUT_JPEG;
 
         static final int DEFAULT_JPEG_QUALITY = 100;
         static final boolean DEFAULT_CROP_OUTPUT = false;
+        static final boolean DEFAULT_EXIF_ORIENTATION = false;
+        static final boolean DEFAULT_MIRROR_FRONT = false;
+        static final int DEFAULT_OUTPUT_WIDTH = 0;
+        static final int DEFAULT_OUTPUT_HEIGHT = 0;
+        static final int DEFAULT_THUMBNAIL_SIZE = 0;
+        static final int DEFAULT_STILL_CANDIDATES = 1;
         static final boolean DEFAULT_ADJUST_VIEW_BOUNDS = false;
 
     }
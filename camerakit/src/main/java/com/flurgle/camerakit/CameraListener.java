@@ -1,5 +1,6 @@
 package com.flurgle.camerakit;
 
+import android.graphics.Bitmap;
 import android.graphics.YuvImage;
 
 import java.io.File;
@@ -14,6 +15,10 @@ public abstract class CameraListener {
 
     }
 
+    public void onThumbnailReady(Bitmap thumbnail) {
+
+    }
+
     public void onPictureTaken(byte[] jpeg) {
 
     }
@@ -22,6 +27,10 @@ public abstract class CameraListener {
 
     }
 
+    public void onPictureTaken(Bitmap bitmap) {
+
+    }
+
     public void onVideoTaken(File video) {
 
     }
@@ -0,0 +1,29 @@
+package com.flurgle.camerakit;
+
+public abstract class CameraMetrics {
+
+    static final CameraMetrics NONE = new CameraMetrics() {
+    };
+
+    /**
+     * Called once per stage a capture passes through. Timestamps come from
+     * {@link System#nanoTime()}; stages that don't apply to the capture method in use
+     * (for example rotation on {@code METHOD_STANDARD}) are not reported. Every capture ends
+     * with exactly one of {@code STAGE_CALLBACK_DISPATCHED} or {@code STAGE_ABORTED}, the latter
+     * when it fails, is cancelled or times out, and reports nothing after that.
+     */
+    public void onCaptureStage(int captureId, @CaptureStage int stage, long timestampNanos, int byteCount) {
+
+    }
+
+    /**
+     * Called when a phase of opening the camera and starting its preview completes.
+     * {@code PHASE_FIRST_FRAME} is measured from the call to {@code start()} until the
+     * preview surface receives its first frame, and {@code PHASE_TIME_TO_ATTACH} from the
+     * moment either the camera or the preview surface became ready until both were bound.
+     */
+    public void onOpenPhase(@OpenPhase int phase, long durationNanos) {
+
+    }
+
+}
@@ -5,10 +5,15 @@ import android.app.Activity;
 import android.content.Context;
 import android.content.ContextWrapper;
 import android.content.pm.PackageManager;
+import android.content.res.Configuration;
 import android.content.res.TypedArray;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
 import android.graphics.Rect;
 import android.graphics.YuvImage;
 import android.hardware.Camera;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v4.app.ActivityCompat;
@@ -18,21 +23,37 @@ import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
 import android.view.Display;
 import android.view.MotionEvent;
+import android.view.View;
 import android.widget.FrameLayout;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.flurgle.camerakit.CameraKit.Constants.FACING_BACK;
 import static com.flurgle.camerakit.CameraKit.Constants.FACING_FRONT;
 import static com.flurgle.camerakit.CameraKit.Constants.FLASH_AUTO;
 import static com.flurgle.camerakit.CameraKit.Constants.FLASH_OFF;
 import static com.flurgle.camerakit.CameraKit.Constants.FLASH_ON;
-import static com.flurgle.camerakit.CameraKit.Constants.METHOD_STANDARD;
+import static com.flurgle.camerakit.CameraKit.Constants.OUTPUT_BITMAP;
+import static com.flurgle.camerakit.CameraKit.Constants.OUTPUT_JPEG;
+import static com.flurgle.camerakit.CameraKit.Constants.PREVIEW_SURFACE_VIEW;
+import static com.flurgle.camerakit.CameraKit.Constants.PREVIEW_TEXTURE_VIEW;
+import static com.flurgle.camerakit.CameraKit.Constants.STAGE_CALLBACK_DISPATCHED;
+import static com.flurgle.camerakit.CameraKit.Constants.STAGE_COMMAND_ENQUEUED;
+import static com.flurgle.camerakit.CameraKit.Constants.STAGE_CROP_DONE;
+import static com.flurgle.camerakit.CameraKit.Constants.STAGE_ENCODE_DONE;
 
 public class CameraView extends FrameLayout {
 
+    // A frame counts as steady when its luma moved less than this since the last one.
+    private static final float AUTO_CAPTURE_MAX_MOTION = 4f;
+    private static final int AUTO_CAPTURE_STEADY_FRAMES = 3;
+
     @Facing
     private int mFacing;
 
@@ -48,18 +69,95 @@ public class CameraView extends FrameLayout {
     @Zoom
     private int mZoom;
 
+    @Preview
+    private int mPreview;
+
+    @OutputFormat
+    private int mOutputFormat;
+
     private int mJpegQuality;
     private boolean mCropOutput;
+    private boolean mExifOrientation;
+    private boolean mMirrorFront;
+    private int mOutputWidth;
+    private int mOutputHeight;
+    private int mThumbnailSize = CameraKit.Defaults.DEFAULT_THUMBNAIL_SIZE;
+    private int mStillCandidates = CameraKit.Defaults.DEFAULT_STILL_CANDIDATES;
     private boolean mAdjustViewBounds;
 
     private CameraListenerMiddleWare mCameraListener;
+    private CameraMetrics mCameraMetrics = CameraMetrics.NONE;
+    private final AtomicInteger mCaptureSequence = new AtomicInteger();
     private DisplayOrientationDetector mDisplayOrientationDetector;
+    private FocusMarkerLayout mFocusMarker;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final Executor mMainExecutor = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            mMainHandler.post(command);
+        }
+    };
+
+    private volatile SharpnessListener mSharpnessListener;
+    private final AtomicBoolean mAutoCaptureArmed = new AtomicBoolean();
+    private volatile float mAutoCaptureSharpness;
+    // Bumped on the main thread each time auto capture is armed. The steady frame count is only
+    // touched on the frame thread, which restarts it when it sees a new request.
+    private volatile int mAutoCaptureRequest;
+    private int mSteadyFramesRequest;
+    private int mSteadyFrames;
+
+    private final SharpnessListener mSharpnessMiddleWare = new SharpnessListener() {
+        @Override
+        public void onSharpness(float sharpness, float motion, long timestampNanos) {
+            SharpnessListener sharpnessListener = mSharpnessListener;
+            if (sharpnessListener != null) {
+                sharpnessListener.onSharpness(sharpness, motion, timestampNanos);
+            }
+
+            if (!mAutoCaptureArmed.get()) {
+                return;
+            }
+
+            int request = mAutoCaptureRequest;
+            if (request != mSteadyFramesRequest) {
+                mSteadyFramesRequest = request;
+                mSteadyFrames = 0;
+            }
+
+            if (sharpness >= mAutoCaptureSharpness && motion <= AUTO_CAPTURE_MAX_MOTION) {
+                mSteadyFrames++;
+            } else {
+                mSteadyFrames = 0;
+            }
+
+            if (mSteadyFrames >= AUTO_CAPTURE_STEADY_FRAMES && mAutoCaptureArmed.compareAndSet(true, false)) {
+                post(mAutoCapture);
+            }
+        }
+    };
+
+    private final Runnable mAutoCapture = new Runnable() {
+        @Override
+        public void run() {
+            updateSharpnessListener();
+            captureImage();
+        }
+    };
+    private final YuvConverter mYuvConverter = new YuvConverter();
 
+    // The preview, backend and orientation tracking are built on first attach or start, so a
+    // view that is inflated but never shown doesn't pay for them. Until then the setters only
+    // record their values.
     private CameraImpl mCameraImpl;
     private PreviewImpl mPreviewImpl;
+    private boolean mFacingApplied;
+    private boolean mOrientationSensorFallback;
+    private FrameProcessor mFrameProcessor;
 
     public CameraView(@NonNull Context context) {
-        super(context, null);
+        this(context, null);
     }
 
     @SuppressWarnings("all")
@@ -79,36 +177,25 @@ public class CameraView extends FrameLayout {
                 mZoom = a.getInteger(R.styleable.CameraView_ckZoom, CameraKit.Defaults.DEFAULT_ZOOM);
                 mJpegQuality = a.getInteger(R.styleable.CameraView_ckJpegQuality, CameraKit.Defaults.DEFAULT_JPEG_QUALITY);
                 mCropOutput = a.getBoolean(R.styleable.CameraView_ckCropOutput, CameraKit.Defaults.DEFAULT_CROP_OUTPUT);
+                mExifOrientation = a.getBoolean(R.styleable.CameraView_ckExifOrientation, CameraKit.Defaults.DEFAULT_EXIF_ORIENTATION);
+                mMirrorFront = a.getBoolean(R.styleable.CameraView_ckMirrorFront, CameraKit.Defaults.DEFAULT_MIRROR_FRONT);
+                mOutputFormat = a.getInteger(R.styleable.CameraView_ckOutputFormat, CameraKit.Defaults.DEFAULT_OUTPUT_FORMAT);
+                mOutputWidth = a.getInteger(R.styleable.CameraView_ckOutputWidth, CameraKit.Defaults.DEFAULT_OUTPUT_WIDTH);
+                mOutputHeight = a.getInteger(R.styleable.CameraView_ckOutputHeight, CameraKit.Defaults.DEFAULT_OUTPUT_HEIGHT);
                 mAdjustViewBounds = a.getBoolean(R.styleable.CameraView_android_adjustViewBounds, CameraKit.Defaults.DEFAULT_ADJUST_VIEW_BOUNDS);
+                mPreview = a.getInteger(R.styleable.CameraView_ckPreview, CameraKit.Defaults.DEFAULT_PREVIEW);
             } finally {
                 a.recycle();
             }
         }
 
         mCameraListener = new CameraListenerMiddleWare();
-
-        mPreviewImpl = new TextureViewPreview(context, this);
-        mCameraImpl = new Camera1(mCameraListener, mPreviewImpl);
-
-        setFacing(mFacing);
-        setFlash(mFlash);
-        setFocus(mFocus);
-        setMethod(mMethod);
-        setZoom(mZoom);
-        
-        mDisplayOrientationDetector = new DisplayOrientationDetector(context) {
-            @Override
-            public void onDisplayOrientationChanged(int displayOrientation) {
-                mCameraImpl.setDisplayOrientation(displayOrientation);
-                mPreviewImpl.setDisplayOrientation(displayOrientation);
-            }
-        };
-
     }
 
     @Override
     protected void onAttachedToWindow() {
         super.onAttachedToWindow();
+        ensureCameraImpl();
         mDisplayOrientationDetector.enable(
                 ViewCompat.isAttachedToWindow(this)
                         ? DisplayManagerCompat.getInstance(getContext()).getDisplay(Display.DEFAULT_DISPLAY)
@@ -119,10 +206,63 @@ public class CameraView extends FrameLayout {
 
     @Override
     protected void onDetachedFromWindow() {
-        mDisplayOrientationDetector.disable();
+        if (mDisplayOrientationDetector != null) {
+            mDisplayOrientationDetector.disable();
+        }
         super.onDetachedFromWindow();
     }
 
+    @Override
+    protected void onConfigurationChanged(Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        if (mDisplayOrientationDetector != null) {
+            mDisplayOrientationDetector.onConfigurationChanged();
+        }
+    }
+
+    private CameraImpl ensureCameraImpl() {
+        if (mCameraImpl != null) {
+            return mCameraImpl;
+        }
+
+        switch (mPreview) {
+            case PREVIEW_SURFACE_VIEW:
+                mPreviewImpl = new SurfaceViewPreview(getContext(), this);
+                break;
+
+            case PREVIEW_TEXTURE_VIEW:
+            default:
+                mPreviewImpl = new TextureViewPreview(getContext(), this);
+                break;
+        }
+
+        // Keep the preview behind any children inflated from the layout.
+        View previewView = mPreviewImpl.getView();
+        if (indexOfChild(previewView) > 0) {
+            removeView(previewView);
+            addView(previewView, 0);
+        }
+
+        mCameraImpl = new Camera1(mCameraListener, mPreviewImpl);
+
+        setFlash(mFlash);
+        setFocus(mFocus);
+        setZoom(mZoom);
+        setFrameProcessor(mFrameProcessor);
+        setCameraMetrics(mCameraMetrics);
+        updateSharpnessListener();
+
+        mDisplayOrientationDetector = new DisplayOrientationDetector(getContext()) {
+            @Override
+            public void onDisplayOrientationChanged(int displayOrientation) {
+                mCameraImpl.setDisplayOrientation(displayOrientation);
+                mPreviewImpl.setDisplayOrientation(displayOrientation);
+            }
+        };
+        mDisplayOrientationDetector.setSensorFallback(mOrientationSensorFallback);
+        return mCameraImpl;
+    }
+
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         if (mAdjustViewBounds) {
@@ -159,18 +299,30 @@ public class CameraView extends FrameLayout {
     public void start() {
         int permissionCheck = ContextCompat.checkSelfPermission(getContext(), Manifest.permission.CAMERA);
         if (permissionCheck == PackageManager.PERMISSION_GRANTED) {
-            mCameraImpl.start();
+            CameraImpl cameraImpl = ensureCameraImpl();
+            if (!mFacingApplied) {
+                // Looking up the camera for a facing enumerates every camera, so it waits for
+                // the first start and runs right before the open that needs it.
+                mFacingApplied = true;
+                cameraImpl.setFacing(mFacing);
+            }
+            cameraImpl.start();
         } else {
             requestCameraPermission();
         }
     }
 
     public void stop() {
-        mCameraImpl.stop();
+        if (mCameraImpl != null) {
+            mCameraImpl.stop();
+        }
     }
 
     public void setFacing(@Facing final int facing) {
         this.mFacing = facing;
+        if (!mFacingApplied) {
+            return;
+        }
 
         new Thread(new Runnable() {
             @Override
@@ -182,22 +334,37 @@ public class CameraView extends FrameLayout {
 
     public void setFlash(@Flash int flash) {
         this.mFlash = flash;
-        mCameraImpl.setFlash(flash);
+        if (mCameraImpl != null) {
+            mCameraImpl.setFlash(flash);
+        }
     }
 
     public void setFocus(@Focus int focus) {
         this.mFocus = focus;
+        if (mCameraImpl == null) {
+            return;
+        }
+
+        if (focus == CameraKit.Constants.FOCUS_TAP_WITH_MARKER && mFocusMarker == null) {
+            mFocusMarker = new FocusMarkerLayout(getContext());
+            addView(mFocusMarker, new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT));
+        }
+        mCameraImpl.setFocusMarker(focus == CameraKit.Constants.FOCUS_TAP_WITH_MARKER ? mFocusMarker : null);
         mCameraImpl.setFocus(mFocus);
     }
 
+    /**
+     * Applies to pictures requested after this call; each capture carries its own method.
+     */
     public void setMethod(@Method int method) {
         this.mMethod = method;
-        mCameraImpl.setMethod(mMethod);
     }
 
     public void setZoom(@Zoom int zoom) {
         this.mZoom = zoom;
-        mCameraImpl.setZoom(mZoom);
+        if (mCameraImpl != null) {
+            mCameraImpl.setZoom(mZoom);
+        }
     }
 
     public void setJpegQuality(int jpegQuality) {
@@ -208,6 +375,88 @@ public class CameraView extends FrameLayout {
         this.mCropOutput = cropOutput;
     }
 
+    public void setExifOrientation(boolean exifOrientation) {
+        this.mExifOrientation = exifOrientation;
+    }
+
+    /**
+     * Mirrors {@code METHOD_STILL} pictures from the front camera so they match the preview.
+     */
+    public void setMirrorFront(boolean mirrorFront) {
+        this.mMirrorFront = mirrorFront;
+    }
+
+    public void setOutputFormat(@OutputFormat int outputFormat) {
+        this.mOutputFormat = outputFormat;
+    }
+
+    /**
+     * Hands a Bitmap received in {@link CameraListener#onPictureTaken(Bitmap)} back so the next
+     * capture can convert into it instead of allocating. The caller must not use it afterwards.
+     */
+    public void releaseBitmap(Bitmap bitmap) {
+        mYuvConverter.release(bitmap);
+    }
+
+    /**
+     * Limits captured pictures to fit within {@code width x height}, in either orientation. Pass
+     * 0 to leave a side unlimited.
+     */
+    public void setOutputSize(int width, int height) {
+        this.mOutputWidth = width;
+        this.mOutputHeight = height;
+    }
+
+    /**
+     * Delivers a thumbnail with its longer side at most {@code maxSide} pixels to
+     * {@link CameraListener#onThumbnailReady} before the full picture. 0 disables thumbnails.
+     */
+    public void setThumbnailSize(int maxSide) {
+        this.mThumbnailSize = maxSide;
+    }
+
+    /**
+     * With {@link CameraKit.Constants#METHOD_STILL}, captures the sharpest of the next
+     * {@code frames} preview frames instead of the next one.
+     */
+    public void setStillCandidates(int frames) {
+        this.mStillCandidates = Math.max(1, frames);
+    }
+
+    /**
+     * Receives a sharpness and motion score for each preview frame, on the frame thread.
+     */
+    public void setSharpnessListener(@Nullable SharpnessListener sharpnessListener) {
+        this.mSharpnessListener = sharpnessListener;
+        updateSharpnessListener();
+    }
+
+    /**
+     * Captures an image once the preview has been at least {@code minSharpness} sharp and
+     * steady for a few frames in a row. See {@link SharpnessListener} for the scale.
+     */
+    public void captureImageWhenSharp(float minSharpness) {
+        mAutoCaptureSharpness = minSharpness;
+        mAutoCaptureRequest++;
+        mAutoCaptureArmed.set(true);
+        updateSharpnessListener();
+    }
+
+    public void cancelCaptureWhenSharp() {
+        mAutoCaptureArmed.set(false);
+        removeCallbacks(mAutoCapture);
+        updateSharpnessListener();
+    }
+
+    private void updateSharpnessListener() {
+        if (mCameraImpl == null) {
+            return;
+        }
+
+        boolean needed = mSharpnessListener != null || mAutoCaptureArmed.get();
+        mCameraImpl.setSharpnessListener(needed ? mSharpnessMiddleWare : null);
+    }
+
     @Facing
     public int toggleFacing() {
         switch (mFacing) {
@@ -242,20 +491,101 @@ public class CameraView extends FrameLayout {
         return mFlash;
     }
 
+    public void setOrientationSensorFallback(boolean orientationSensorFallback) {
+        this.mOrientationSensorFallback = orientationSensorFallback;
+        if (mDisplayOrientationDetector != null) {
+            mDisplayOrientationDetector.setSensorFallback(orientationSensorFallback);
+        }
+    }
+
+    /**
+     * Receives every preview frame the processor keeps up with, on a background thread. Pass
+     * null to stop frame delivery.
+     */
+    public void setFrameProcessor(@Nullable FrameProcessor frameProcessor) {
+        this.mFrameProcessor = frameProcessor;
+        if (mCameraImpl != null) {
+            mCameraImpl.setFrameProcessor(frameProcessor);
+        }
+    }
+
     public void setCameraListener(CameraListener cameraListener) {
         this.mCameraListener.setCameraListener(cameraListener);
     }
 
+    /**
+     * Adds a listener alongside the one given to {@link #setCameraListener(CameraListener)}.
+     * Events are delivered to it in order on {@code executor}, one at a time, so a slow listener
+     * doesn't hold up the others. A null executor calls it on the thread raising the event.
+     */
+    public void addCameraListener(@NonNull CameraListener cameraListener, @Nullable Executor executor) {
+        this.mCameraListener.addCameraListener(cameraListener, executor);
+    }
+
+    public void removeCameraListener(@NonNull CameraListener cameraListener) {
+        this.mCameraListener.removeCameraListener(cameraListener);
+    }
+
+    public void setCameraMetrics(@Nullable CameraMetrics cameraMetrics) {
+        this.mCameraMetrics = cameraMetrics != null ? cameraMetrics : CameraMetrics.NONE;
+        if (mCameraImpl != null) {
+            mCameraImpl.setMetrics(mCameraMetrics);
+        }
+    }
+
     public void captureImage() {
-        mCameraImpl.captureImage();
+        captureImage(new CaptureRequest());
+    }
+
+    /**
+     * Queues a picture and returns a handle that receives this picture only. Requests are taken
+     * one after another in the order they were made; registered listeners still see every
+     * picture as well.
+     */
+    public PendingCapture captureImage(CaptureRequest request) {
+        int id = mCaptureSequence.incrementAndGet();
+        final PendingCapture pending = new PendingCapture(id, mMainExecutor);
+        if (request.getTimeoutMillis() > 0) {
+            final long timeoutMillis = request.getTimeoutMillis();
+            final Runnable timeout = new Runnable() {
+                @Override
+                public void run() {
+                    pending.fail(new TimeoutException("No picture after " + timeoutMillis + " ms"));
+                }
+            };
+            mMainHandler.postDelayed(timeout, timeoutMillis);
+            pending.addDoneListener(new Runnable() {
+                @Override
+                public void run() {
+                    mMainHandler.removeCallbacks(timeout);
+                }
+            });
+        }
+
+        Capture capture = new Capture(id, mCameraMetrics, mCameraListener);
+        capture.setPending(pending);
+        capture.setMethod(mMethod);
+        capture.setOutputFormat(mOutputFormat);
+        capture.setJpegQuality(mJpegQuality);
+        capture.setCropRatio(mCropOutput && getWidth() > 0 && getHeight() > 0 ? AspectRatio.of(getWidth(), getHeight()) : null);
+        capture.setOutputSize(mOutputWidth, mOutputHeight);
+        capture.setExifOrientation(mExifOrientation && mOutputFormat == OUTPUT_JPEG);
+        capture.setThumbnailSize(mThumbnailSize);
+        capture.setMirrorFront(mMirrorFront);
+        capture.setStillCandidates(mStillCandidates);
+        capture.mark(STAGE_COMMAND_ENQUEUED, 0);
+        ensureCameraImpl().captureImage(capture);
+        return pending;
     }
 
     public void startRecordingVideo() {
-        mCameraImpl.startVideo();
+        ensureCameraImpl().startVideo();
     }
 
     public void stopRecordingVideo() {
-        mCameraImpl.endVideo();
+        if (mCameraImpl != null) {
+            mCameraImpl.endVideo();
+        }
     }
 
     public Size getPreviewSize() {
@@ -296,7 +626,7 @@ public class CameraView extends FrameLayout {
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
-        if (mCameraImpl.getCamera() != null) {
+        if (mCameraImpl != null && mCameraImpl.getCamera() != null) {
             Camera.Parameters params = mCameraImpl.getCamera().getParameters();
             int action = event.getAction();
 
@@ -363,8 +693,9 @@ public class CameraView extends FrameLayout {
         return (float) Math.sqrt(x * x + y * y);
     }
 
-    private class CameraListenerMiddleWare extends CameraListener {
+    private class CameraListenerMiddleWare extends CameraListener implements Capture.Callback {
 
+        private final CameraListenerRegistry mListeners = new CameraListenerRegistry();
         private CameraListener mCameraListener;
 
         @Override
@@ -380,28 +711,117 @@ public class CameraView extends FrameLayout {
         }
 
         @Override
-        public void onPictureTaken(byte[] jpeg) {
-            super.onPictureTaken(jpeg);
-            if (mCropOutput) {
-                int width = mMethod == METHOD_STANDARD ? mCameraImpl.getCaptureResolution().getWidth() : mCameraImpl.getPreviewResolution().getWidth();
-                int height = mMethod == METHOD_STANDARD ? mCameraImpl.getCaptureResolution().getHeight() : mCameraImpl.getPreviewResolution().getHeight();
-                AspectRatio outputRatio = AspectRatio.of(getWidth(), getHeight());
-                getCameraListener().onPictureTaken(new CenterCrop(jpeg, outputRatio, mJpegQuality).getJpeg());
-            } else {
-                getCameraListener().onPictureTaken(jpeg);
+        public void onThumbnailReady(Capture capture, Bitmap thumbnail) {
+            getCameraListener().onThumbnailReady(thumbnail);
+        }
+
+        @Override
+        public void onPictureTaken(Capture capture, byte[] jpeg) {
+            if (capture.getOutputFormat() == OUTPUT_BITMAP) {
+                dispatchBitmap(capture, jpeg);
+                return;
+            }
+
+            if (capture.getCropRatio() != null || capture.isDownscaled()) {
+                jpeg = new CenterCrop(jpeg, capture.getCropRatio(), capture.getJpegQuality(), capture.getOutputWidth(), capture.getOutputHeight()).getJpeg();
+                capture.mark(STAGE_CROP_DONE, jpeg != null ? jpeg.length : 0);
             }
+
+            capture.mark(STAGE_CALLBACK_DISPATCHED, jpeg != null ? jpeg.length : 0);
+            deliver(capture, jpeg);
         }
 
         @Override
-        public void onPictureTaken(YuvImage yuv) {
-            super.onPictureTaken(yuv);
-            if (mCropOutput) {
-                AspectRatio outputRatio = AspectRatio.of(getWidth(), getHeight());
-                getCameraListener().onPictureTaken(new CenterCrop(yuv, outputRatio, mJpegQuality).getJpeg());
+        public void onPictureTaken(Capture capture, YuvImage yuv, int rotation, boolean mirrored) {
+            Rect crop;
+            if (capture.getCropRatio() != null) {
+                AspectRatio outputRatio = capture.getCropRatio();
+                if (rotation % 180 != 0) {
+                    outputRatio = outputRatio.inverse();
+                }
+                crop = CenterCrop.getCrop(yuv.getWidth(), yuv.getHeight(), outputRatio);
+            } else {
+                crop = new Rect(0, 0, yuv.getWidth(), yuv.getHeight());
+            }
+
+            Size target = Downscale.fit(crop.width(), crop.height(), capture.getOutputWidth(), capture.getOutputHeight());
+            if (target != null) {
+                byte[] scaled = Downscale.nv21(yuv.getYuvData(), yuv.getWidth(), yuv.getHeight(), crop, target.getWidth(), target.getHeight());
+                yuv = new YuvImage(scaled, yuv.getYuvFormat(), target.getWidth(), target.getHeight(), null);
+                crop = new Rect(0, 0, target.getWidth(), target.getHeight());
+            }
+            if (capture.getCropRatio() != null || target != null) {
+                capture.mark(STAGE_CROP_DONE, crop.width() * crop.height() * 3 / 2);
+            }
+
+            if (capture.getOutputFormat() == OUTPUT_BITMAP) {
+                Bitmap bitmap = mYuvConverter.convert(yuv.getYuvData(), yuv.getWidth(), yuv.getHeight(), crop);
+                capture.mark(STAGE_ENCODE_DONE, bitmap.getByteCount());
+                capture.mark(STAGE_CALLBACK_DISPATCHED, bitmap.getByteCount());
+                deliver(capture, bitmap);
+                return;
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            yuv.compressToJpeg(crop, capture.getJpegQuality(), out);
+            byte[] jpeg = out.toByteArray();
+
+            if (capture.isExifOrientation()) {
+                jpeg = ExifOrientation.write(jpeg, rotation, mirrored);
+            }
+
+            capture.mark(STAGE_ENCODE_DONE, jpeg.length);
+            capture.mark(STAGE_CALLBACK_DISPATCHED, jpeg.length);
+            deliver(capture, jpeg);
+        }
+
+        private void dispatchBitmap(Capture capture, byte[] jpeg) {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inJustDecodeBounds = true;
+            BitmapFactory.decodeByteArray(jpeg, 0, jpeg.length, options);
+
+            Rect crop = capture.getCropRatio() != null
+                    ? CenterCrop.getCrop(options.outWidth, options.outHeight, capture.getCropRatio())
+                    : new Rect(0, 0, options.outWidth, options.outHeight);
+            Size target = Downscale.fit(crop.width(), crop.height(), capture.getOutputWidth(), capture.getOutputHeight());
+
+            Bitmap bitmap;
+            if (crop.width() == options.outWidth && crop.height() == options.outHeight && target == null) {
+                BitmapFactory.Options decode = new BitmapFactory.Options();
+                decode.inMutable = true;
+                decode.inBitmap = mYuvConverter.obtain();
+                try {
+                    bitmap = BitmapFactory.decodeByteArray(jpeg, 0, jpeg.length, decode);
+                } catch (IllegalArgumentException e) {
+                    // The pooled bitmap can't hold this picture.
+                    decode.inBitmap = null;
+                    bitmap = BitmapFactory.decodeByteArray(jpeg, 0, jpeg.length, decode);
+                }
+            } else {
+                byte[] cropped = new CenterCrop(jpeg, capture.getCropRatio(), capture.getJpegQuality(), capture.getOutputWidth(), capture.getOutputHeight()).getJpeg();
+                capture.mark(STAGE_CROP_DONE, cropped != null ? cropped.length : 0);
+                bitmap = cropped != null ? BitmapFactory.decodeByteArray(cropped, 0, cropped.length) : null;
+            }
+
+            capture.mark(STAGE_CALLBACK_DISPATCHED, bitmap != null ? bitmap.getByteCount() : 0);
+            deliver(capture, bitmap);
+        }
+
+        private void deliver(Capture capture, byte[] jpeg) {
+            getCameraListener().onPictureTaken(jpeg);
+            if (jpeg != null) {
+                capture.complete(jpeg);
+            } else {
+                capture.fail(new IllegalStateException("Picture could not be processed"));
+            }
+        }
+
+        private void deliver(Capture capture, Bitmap bitmap) {
+            getCameraListener().onPictureTaken(bitmap);
+            if (bitmap != null) {
+                capture.complete(bitmap);
             } else {
-                ByteArrayOutputStream out = new ByteArrayOutputStream();
-                yuv.compressToJpeg(new Rect(0, 0, yuv.getWidth(), yuv.getHeight()), mJpegQuality, out);
-                getCameraListener().onPictureTaken(out.toByteArray());
+                capture.fail(new IllegalStateException("Picture could not be decoded"));
             }
         }
 
@@ -411,14 +831,31 @@ public class CameraView extends FrameLayout {
             getCameraListener().onVideoTaken(video);
         }
 
+        // The listener set through setCameraListener() keeps being called in place, as before.
         public void setCameraListener(@Nullable CameraListener cameraListener) {
+            if (mCameraListener != null) {
+                mListeners.remove(mCameraListener);
+            }
             this.mCameraListener = cameraListener;
+            if (cameraListener != null) {
+                mListeners.add(cameraListener, null);
+            }
+        }
+
+        public void addCameraListener(@NonNull CameraListener cameraListener, @Nullable Executor executor) {
+            mListeners.add(cameraListener, executor);
+        }
+
+        public void removeCameraListener(@NonNull CameraListener cameraListener) {
+            if (cameraListener == mCameraListener) {
+                mCameraListener = null;
+            }
+            mListeners.remove(cameraListener);
         }
 
         @NonNull
         public CameraListener getCameraListener() {
-            return mCameraListener != null ? mCameraListener : new CameraListener() {
-            };
+            return mListeners;
         }
 
     }
@@ -0,0 +1,15 @@
+package com.flurgle.camerakit;
+
+public abstract class CaptureCallback {
+
+    public abstract void onCaptureCompleted(CaptureResult result);
+
+    /**
+     * Called instead of {@link #onCaptureCompleted(CaptureResult)} when the capture timed out,
+     * was cancelled or the camera closed before the picture was taken.
+     */
+    public void onCaptureFailed(Exception error) {
+
+    }
+
+}
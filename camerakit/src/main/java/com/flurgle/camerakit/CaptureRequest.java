@@ -0,0 +1,26 @@
+package com.flurgle.camerakit;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per capture options for {@link CameraView#captureImage(CaptureRequest)}.
+ */
+public final class CaptureRequest {
+
+    private long mTimeoutMillis;
+
+    /**
+     * Fails the capture with a {@link java.util.concurrent.TimeoutException} if no picture has
+     * been delivered within {@code timeout}, counted from the call to {@code captureImage}. A
+     * timeout of 0 waits indefinitely.
+     */
+    public CaptureRequest setTimeout(long timeout, TimeUnit unit) {
+        mTimeoutMillis = unit.toMillis(timeout);
+        return this;
+    }
+
+    long getTimeoutMillis() {
+        return mTimeoutMillis;
+    }
+
+}
@@ -0,0 +1,43 @@
+package com.flurgle.camerakit;
+
+import android.graphics.Bitmap;
+import android.support.annotation.Nullable;
+
+public final class CaptureResult {
+
+    private final int mCaptureId;
+    private final byte[] mJpeg;
+    private final Bitmap mBitmap;
+
+    CaptureResult(int captureId, byte[] jpeg, Bitmap bitmap) {
+        mCaptureId = captureId;
+        mJpeg = jpeg;
+        mBitmap = bitmap;
+    }
+
+    /**
+     * Matches the capture id reported to {@link CameraMetrics}.
+     */
+    public int getCaptureId() {
+        return mCaptureId;
+    }
+
+    /**
+     * The encoded picture, or null when the output format is
+     * {@link CameraKit.Constants#OUTPUT_BITMAP}.
+     */
+    @Nullable
+    public byte[] getJpeg() {
+        return mJpeg;
+    }
+
+    /**
+     * The decoded picture, or null when the output format is
+     * {@link CameraKit.Constants#OUTPUT_JPEG}.
+     */
+    @Nullable
+    public Bitmap getBitmap() {
+        return mBitmap;
+    }
+
+}
@@ -15,6 +15,23 @@ public class FocusMarkerLayout extends FrameLayout {
     private FrameLayout mFocusMarkerContainer;
     private ImageView mFill;
 
+    // Allocated once so repeated taps only restart the views' own animators.
+    private final AnimatorListenerAdapter mContainerShown = new AnimatorListenerAdapter() {
+        @Override
+        public void onAnimationEnd(Animator animation) {
+            super.onAnimationEnd(animation);
+            mFocusMarkerContainer.animate().alpha(0).setStartDelay(750).setDuration(800).setListener(null).start();
+        }
+    };
+
+    private final AnimatorListenerAdapter mFillShown = new AnimatorListenerAdapter() {
+        @Override
+        public void onAnimationEnd(Animator animation) {
+            super.onAnimationEnd(animation);
+            mFill.animate().alpha(0).setDuration(800).setListener(null).start();
+        }
+    };
+
     public FocusMarkerLayout(@NonNull Context context) {
         this(context, null);
     }
@@ -31,7 +48,7 @@ public class FocusMarkerLayout extends FrameLayout {
 
     public void focus(float mx, float my) {
         int x = (int) (mx - mFocusMarkerContainer.getWidth() / 2);
-        int y = (int) (my - mFocusMarkerContainer.getWidth() / 2);
+        int y = (int) (my - mFocusMarkerContainer.getHeight() / 2);
 
         mFocusMarkerContainer.setTranslationX(x);
         mFocusMarkerContainer.setTranslationY(y);
@@ -48,22 +65,10 @@ public class FocusMarkerLayout extends FrameLayout {
         mFocusMarkerContainer.setAlpha(1f);
 
         mFocusMarkerContainer.animate().scaleX(1).scaleY(1).setStartDelay(0).setDuration(330)
-                .setListener(new AnimatorListenerAdapter() {
-                    @Override
-                    public void onAnimationEnd(Animator animation) {
-                        super.onAnimationEnd(animation);
-                        mFocusMarkerContainer.animate().alpha(0).setStartDelay(750).setDuration(800).setListener(null).start();
-                    }
-                }).start();
+                .setListener(mContainerShown).start();
 
         mFill.animate().scaleX(1).scaleY(1).setDuration(330)
-                .setListener(new AnimatorListenerAdapter() {
-                    @Override
-                    public void onAnimationEnd(Animator animation) {
-                        super.onAnimationEnd(animation);
-                        mFill.animate().alpha(0).setDuration(800).setListener(null).start();
-                    }
-                }).start();
+                .setListener(mFillShown).start();
 
     }
 
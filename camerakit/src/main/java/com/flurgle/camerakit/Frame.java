@@ -0,0 +1,178 @@
+package com.flurgle.camerakit;
+
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A preview frame handed to a {@link FrameProcessor}. It wraps the camera's own buffer, which is
+ * returned to the camera once {@link FrameProcessor#process(Frame)} returns, so neither the
+ * frame nor any buffer obtained from it may be kept past that call.
+ */
+public final class Frame {
+
+    private byte[] mData;
+    private int mWidth;
+    private int mHeight;
+    private int mFormat;
+    private int mRotation;
+    private long mTimestampNanos;
+    private ViewTransform mViewTransform;
+
+    private ByteBuffer mLuma;
+    private byte[] mRotatedLuma;
+    private boolean mRotatedLumaValid;
+    private LumaPyramid mPyramid;
+    private boolean mPyramidValid;
+    private final RectF mNormalizedRect = new RectF();
+
+    Frame() {
+    }
+
+    void set(byte[] data, int width, int height, int format, int rotation, long timestampNanos) {
+        set(data, width, height, format, rotation, timestampNanos, null);
+    }
+
+    void set(byte[] data, int width, int height, int format, int rotation, long timestampNanos, ViewTransform viewTransform) {
+        mViewTransform = viewTransform;
+        mData = data;
+        mWidth = width;
+        mHeight = height;
+        mFormat = format;
+        mRotation = rotation;
+        mTimestampNanos = timestampNanos;
+        mLuma = null;
+        mRotatedLumaValid = false;
+        mPyramidValid = false;
+    }
+
+    byte[] getData() {
+        return mData;
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    /**
+     * Bytes between the starts of two luma rows. Always the width, since the preview is
+     * configured for NV21.
+     */
+    public int getRowStride() {
+        return mWidth;
+    }
+
+    public int getFormat() {
+        return mFormat;
+    }
+
+    /**
+     * Clockwise rotation that turns the frame upright, in degrees.
+     */
+    public int getRotation() {
+        return mRotation;
+    }
+
+    public long getTimestampNanos() {
+        return mTimestampNanos;
+    }
+
+    /**
+     * The Y plane of the camera buffer as a read-only view, {@link #getRowStride()} bytes per row,
+     * in sensor orientation. No pixels are copied.
+     */
+    public ByteBuffer getLuma() {
+        if (mLuma == null) {
+            ByteBuffer buffer = ByteBuffer.wrap(mData, 0, mWidth * mHeight);
+            mLuma = buffer.slice().asReadOnlyBuffer();
+        }
+        return mLuma.duplicate();
+    }
+
+    /**
+     * An upright copy of the Y plane only, computed on first use. Rows are
+     * {@link #getRotatedWidth()} bytes. The array is reused for later frames of the same size.
+     */
+    public byte[] getRotatedLuma() {
+        if (!mRotatedLumaValid) {
+            int size = mWidth * mHeight;
+            if (mRotatedLuma == null || mRotatedLuma.length != size) {
+                mRotatedLuma = new byte[size];
+            }
+            Rotation.rotateLuma(mData, mWidth, mHeight, mRotation, mRotatedLuma);
+            mRotatedLumaValid = true;
+        }
+        return mRotatedLuma;
+    }
+
+    /**
+     * The Y plane scaled down by {@code 2^level} on both axes as a read-only view,
+     * {@link #getLumaLevelWidth(int)} bytes per row, in sensor orientation. Level 0 is
+     * {@link #getLuma()}. Each level is averaged from the one above it the first time any caller
+     * asks for it during this frame, so analyzers running at several scales share the work. The
+     * buffers are reused for later frames.
+     */
+    public ByteBuffer getLumaLevel(int level) {
+        if (level == 0) {
+            return getLuma();
+        }
+
+        LumaPyramid pyramid = getPyramid();
+        byte[] data = pyramid.getLevel(level);
+        return ByteBuffer.wrap(data, 0, pyramid.getWidth(level) * pyramid.getHeight(level)).asReadOnlyBuffer();
+    }
+
+    public int getLumaLevelWidth(int level) {
+        return getPyramid().getWidth(level);
+    }
+
+    public int getLumaLevelHeight(int level) {
+        return getPyramid().getHeight(level);
+    }
+
+    private LumaPyramid getPyramid() {
+        if (mPyramid == null) {
+            mPyramid = new LumaPyramid();
+        }
+        if (!mPyramidValid) {
+            mPyramid.reset(mData, mWidth, mHeight);
+            mPyramidValid = true;
+        }
+        return mPyramid;
+    }
+
+    public int getRotatedWidth() {
+        return mRotation % 180 == 0 ? mWidth : mHeight;
+    }
+
+    public int getRotatedHeight() {
+        return mRotation % 180 == 0 ? mHeight : mWidth;
+    }
+
+    /**
+     * Maps a rectangle in preview view coordinates to the pixels of this frame it shows, taking
+     * the preview crop, display rotation and front camera mirroring into account. Returns false
+     * when the frame isn't tied to a preview.
+     */
+    public boolean mapFromView(RectF viewRect, Rect out) {
+        if (mViewTransform == null) {
+            return false;
+        }
+
+        RectF normalized = mNormalizedRect;
+        mViewTransform.mapViewToFrame(viewRect, normalized);
+        out.set(
+                (int) (normalized.left * mWidth),
+                (int) (normalized.top * mHeight),
+                (int) Math.ceil(normalized.right * mWidth),
+                (int) Math.ceil(normalized.bottom * mHeight)
+        );
+        return true;
+    }
+
+}
@@ -0,0 +1,11 @@
+package com.flurgle.camerakit;
+
+public abstract class FrameProcessor {
+
+    /**
+     * Called on a background thread for each preview frame while the camera is running. Frames
+     * that arrive while the previous one is still being processed are dropped.
+     */
+    public abstract void process(Frame frame);
+
+}
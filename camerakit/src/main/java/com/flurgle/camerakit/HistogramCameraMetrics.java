@@ -0,0 +1,109 @@
+package com.flurgle.camerakit;
+
+import java.util.Arrays;
+
+import static com.flurgle.camerakit.CameraKit.Constants.STAGE_ABORTED;
+import static com.flurgle.camerakit.CameraKit.Constants.STAGE_CALLBACK_DISPATCHED;
+import static com.flurgle.camerakit.CameraKit.Constants.STAGE_COMMAND_ENQUEUED;
+
+/**
+ * Keeps an in-memory histogram of the time spent reaching each stage, measured from the
+ * previous stage reported for the same capture. Buckets are powers of two in microseconds.
+ */
+public class HistogramCameraMetrics extends CameraMetrics {
+
+    private static final int STAGE_COUNT = STAGE_ABORTED + 1;
+    private static final int BUCKET_COUNT = 32;
+    // Captures in flight at once that are tracked; ids are sequential, so they share slots only
+    // when this many are outstanding.
+    private static final int SLOT_COUNT = 64;
+
+    private final long[][] mBuckets = new long[STAGE_COUNT][BUCKET_COUNT];
+    private final long[] mCounts = new long[STAGE_COUNT];
+    private final long[] mTotalNanos = new long[STAGE_COUNT];
+    private final long[] mTotalBytes = new long[STAGE_COUNT];
+
+    // The last stage timestamp of each capture in flight, by capture id modulo SLOT_COUNT.
+    private final int[] mSlotIds = new int[SLOT_COUNT];
+    private final long[] mLastTimestamps = new long[SLOT_COUNT];
+
+    public HistogramCameraMetrics() {
+        Arrays.fill(mSlotIds, -1);
+    }
+
+    @Override
+    public synchronized void onCaptureStage(int captureId, @CaptureStage int stage, long timestampNanos, int byteCount) {
+        int slot = captureId & (SLOT_COUNT - 1);
+        boolean tracked = stage != STAGE_COMMAND_ENQUEUED && mSlotIds[slot] == captureId;
+        long elapsed = tracked ? Math.max(0, timestampNanos - mLastTimestamps[slot]) : 0;
+
+        if (stage == STAGE_CALLBACK_DISPATCHED || stage == STAGE_ABORTED) {
+            if (mSlotIds[slot] == captureId) {
+                mSlotIds[slot] = -1;
+            }
+        } else {
+            mSlotIds[slot] = captureId;
+            mLastTimestamps[slot] = timestampNanos;
+        }
+
+        mBuckets[stage][bucketOf(elapsed)]++;
+        mCounts[stage]++;
+        mTotalNanos[stage] += elapsed;
+        mTotalBytes[stage] += byteCount;
+    }
+
+    public synchronized long getCount(@CaptureStage int stage) {
+        return mCounts[stage];
+    }
+
+    public synchronized long getMeanNanos(@CaptureStage int stage) {
+        return mCounts[stage] > 0 ? mTotalNanos[stage] / mCounts[stage] : 0;
+    }
+
+    public synchronized long getTotalBytes(@CaptureStage int stage) {
+        return mTotalBytes[stage];
+    }
+
+    /**
+     * Returns the upper bound, in nanoseconds, of the bucket holding the given percentile.
+     */
+    public synchronized long getPercentileNanos(@CaptureStage int stage, double percentile) {
+        long count = mCounts[stage];
+        if (count == 0) {
+            return 0;
+        }
+
+        long target = (long) Math.ceil(count * Math.min(Math.max(percentile, 0), 100) / 100d);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += mBuckets[stage][i];
+            if (seen >= Math.max(target, 1)) {
+                return (1L << i) * 1000L;
+            }
+        }
+
+        return (1L << (BUCKET_COUNT - 1)) * 1000L;
+    }
+
+    public synchronized void reset() {
+        for (int i = 0; i < STAGE_COUNT; i++) {
+            for (int j = 0; j < BUCKET_COUNT; j++) {
+                mBuckets[i][j] = 0;
+            }
+            mCounts[i] = 0;
+            mTotalNanos[i] = 0;
+            mTotalBytes[i] = 0;
+        }
+        Arrays.fill(mSlotIds, -1);
+    }
+
+    private static int bucketOf(long nanos) {
+        long micros = nanos / 1000L;
+        int bucket = 0;
+        while (bucket < BUCKET_COUNT - 1 && (1L << bucket) < micros) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+}
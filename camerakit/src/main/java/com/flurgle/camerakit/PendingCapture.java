@@ -0,0 +1,179 @@
+package com.flurgle.camerakit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Handle for one picture requested through {@link CameraView#captureImage(CaptureRequest)}.
+ * Captures are queued and run one after another, so several may be pending at once; each handle
+ * only ever receives its own result.
+ *
+ * Cancelling a capture that hasn't reached the camera yet removes it from the queue. Once the
+ * camera has taken it, cancelling only discards the result.
+ */
+public final class PendingCapture implements Future<CaptureResult> {
+
+    private static final int STATE_PENDING = 0;
+    private static final int STATE_COMPLETED = 1;
+    private static final int STATE_FAILED = 2;
+    private static final int STATE_CANCELLED = 3;
+
+    private final int mCaptureId;
+    private final Executor mCallbackExecutor;
+    private final CountDownLatch mDone = new CountDownLatch(1);
+
+    private int mState = STATE_PENDING;
+    private CaptureResult mResult;
+    private Exception mError;
+    private CaptureCallback mCallback;
+    private CaptureCallback mNotifiedCallback;
+    private List<Runnable> mDoneListeners;
+
+    PendingCapture(int captureId, Executor callbackExecutor) {
+        mCaptureId = captureId;
+        mCallbackExecutor = callbackExecutor;
+    }
+
+    public int getCaptureId() {
+        return mCaptureId;
+    }
+
+    /**
+     * Delivers the outcome to {@code callback} on the main thread, right away if the capture
+     * has already finished. Replaces any earlier callback.
+     */
+    public void setCallback(CaptureCallback callback) {
+        boolean done;
+        synchronized (this) {
+            mCallback = callback;
+            done = mState != STATE_PENDING;
+        }
+        if (done) {
+            notifyCallback();
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return finish(STATE_CANCELLED, null, new CancellationException("Capture " + mCaptureId + " was cancelled"));
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return mState == STATE_CANCELLED;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return mState != STATE_PENDING;
+    }
+
+    @Override
+    public CaptureResult get() throws InterruptedException, ExecutionException {
+        mDone.await();
+        return getResult();
+    }
+
+    @Override
+    public CaptureResult get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!mDone.await(timeout, unit)) {
+            throw new TimeoutException("Capture " + mCaptureId + " still pending");
+        }
+        return getResult();
+    }
+
+    /**
+     * Runs {@code listener} on the callback executor once the capture finishes in any way,
+     * including cancellation and timeout. Runs it right away if it already has.
+     */
+    void addDoneListener(Runnable listener) {
+        synchronized (this) {
+            if (mState == STATE_PENDING) {
+                if (mDoneListeners == null) {
+                    mDoneListeners = new ArrayList<>(2);
+                }
+                mDoneListeners.add(listener);
+                return;
+            }
+        }
+        mCallbackExecutor.execute(listener);
+    }
+
+    boolean complete(CaptureResult result) {
+        return finish(STATE_COMPLETED, result, null);
+    }
+
+    boolean fail(Exception error) {
+        return finish(STATE_FAILED, null, error);
+    }
+
+    private synchronized CaptureResult getResult() throws ExecutionException {
+        switch (mState) {
+            case STATE_COMPLETED:
+                return mResult;
+
+            case STATE_CANCELLED:
+                throw (CancellationException) mError;
+
+            default:
+                throw new ExecutionException(mError);
+        }
+    }
+
+    private boolean finish(int state, CaptureResult result, Exception error) {
+        List<Runnable> doneListeners;
+        synchronized (this) {
+            if (mState != STATE_PENDING) {
+                return false;
+            }
+            mState = state;
+            mResult = result;
+            mError = error;
+            doneListeners = mDoneListeners;
+            mDoneListeners = null;
+        }
+
+        mDone.countDown();
+        notifyCallback();
+        if (doneListeners != null) {
+            for (Runnable listener : doneListeners) {
+                mCallbackExecutor.execute(listener);
+            }
+        }
+        return true;
+    }
+
+    private void notifyCallback() {
+        final CaptureCallback callback;
+        final CaptureResult result;
+        final Exception error;
+        synchronized (this) {
+            callback = mCallback;
+            if (callback == null || callback == mNotifiedCallback || mState == STATE_PENDING) {
+                return;
+            }
+            mNotifiedCallback = callback;
+            result = mResult;
+            error = mError;
+        }
+
+        mCallbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (result != null) {
+                    callback.onCaptureCompleted(result);
+                } else {
+                    callback.onCaptureFailed(error);
+                }
+            }
+        });
+    }
+
+}
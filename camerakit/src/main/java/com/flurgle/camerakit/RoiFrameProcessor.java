@@ -0,0 +1,63 @@
+package com.flurgle.camerakit;
+
+import android.graphics.ImageFormat;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+/**
+ * Crops each frame to a region of the preview view and scales it to a fixed size before handing
+ * it to another processor, so analyzers only pay for the pixels they look at. The region is given
+ * in preview view coordinates; frames that can't be mapped to the view use the whole frame.
+ *
+ * The frame passed downstream is in sensor orientation like the source frame, and its buffer is
+ * reused for the next frame.
+ */
+public class RoiFrameProcessor extends FrameProcessor {
+
+    private final FrameProcessor mDownstream;
+    private final int mTargetWidth;
+    private final int mTargetHeight;
+    private final Frame mOutput = new Frame();
+    private final byte[] mOutputData;
+    private final int[] mScratch;
+    private final Rect mCrop = new Rect();
+
+    private volatile RectF mViewRegion;
+
+    /**
+     * @param targetWidth  width of the frames handed downstream, in sensor orientation. Rounded
+     *                     down to an even value.
+     * @param targetHeight height of the frames handed downstream, in sensor orientation. Rounded
+     *                     down to an even value.
+     */
+    public RoiFrameProcessor(RectF viewRegion, int targetWidth, int targetHeight, FrameProcessor downstream) {
+        if (targetWidth < 2 || targetHeight < 2) {
+            throw new IllegalArgumentException("Target size must be at least 2x2");
+        }
+
+        mViewRegion = new RectF(viewRegion.left, viewRegion.top, viewRegion.right, viewRegion.bottom);
+        mTargetWidth = targetWidth & ~1;
+        mTargetHeight = targetHeight & ~1;
+        mOutputData = new byte[mTargetWidth * mTargetHeight * 3 / 2];
+        mScratch = new int[Downscale.scratchSize(mTargetWidth)];
+        mDownstream = downstream;
+    }
+
+    public void setViewRegion(RectF viewRegion) {
+        mViewRegion = new RectF(viewRegion.left, viewRegion.top, viewRegion.right, viewRegion.bottom);
+    }
+
+    @Override
+    public void process(Frame frame) {
+        if (!frame.mapFromView(mViewRegion, mCrop) || mCrop.width() < 2 || mCrop.height() < 2) {
+            mCrop.set(0, 0, frame.getWidth(), frame.getHeight());
+        }
+
+        Downscale.nv21(frame.getData(), frame.getWidth(), frame.getHeight(), mCrop,
+                mTargetWidth, mTargetHeight, mOutputData, mScratch);
+        mOutput.set(mOutputData, mTargetWidth, mTargetHeight, ImageFormat.NV21, frame.getRotation(),
+                frame.getTimestampNanos());
+        mDownstream.process(mOutput);
+    }
+
+}
@@ -0,0 +1,106 @@
+package com.flurgle.camerakit;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Forwards frames to another processor only when the scene has changed, so analyzers don't
+ * redo their work on a static view. Each frame is reduced to a small grid of block averaged
+ * luma, read from the frame's shared luma pyramid, and compared with the grid of the last
+ * forwarded frame. Comparing against the last forwarded frame rather than the previous one
+ * means slow drifts are caught too. Once the grid is built the comparison costs only as much
+ * as the number of blocks.
+ */
+public class SceneChangeGate extends FrameProcessor {
+
+    private static final int GRID_COLUMNS = 16;
+    private static final int GRID_ROWS = 12;
+    private static final int MAX_PYRAMID_LEVEL = 3;
+
+    private final FrameProcessor mDownstream;
+    private final float mThreshold;
+    private final long mMaxIntervalNanos;
+
+    private final int[] mSignature = new int[GRID_COLUMNS * GRID_ROWS];
+    private final int[] mForwardedSignature = new int[GRID_COLUMNS * GRID_ROWS];
+    private boolean mHasForwarded;
+    private long mForwardedTimestampNanos;
+
+    private volatile long mForwardedCount;
+    private volatile long mSkippedCount;
+
+    /**
+     * @param threshold         mean absolute change of the block averages, in luma levels from
+     *                          0 to 255, above which a frame is forwarded.
+     * @param maxIntervalMillis longest time to go without forwarding a frame, or 0 for no limit.
+     */
+    public SceneChangeGate(float threshold, long maxIntervalMillis, FrameProcessor downstream) {
+        mThreshold = threshold;
+        mMaxIntervalNanos = maxIntervalMillis * 1000000L;
+        mDownstream = downstream;
+    }
+
+    @Override
+    public void process(Frame frame) {
+        extractSignature(frame);
+
+        long timestamp = frame.getTimestampNanos();
+        boolean expired = mMaxIntervalNanos > 0 && timestamp - mForwardedTimestampNanos >= mMaxIntervalNanos;
+        if (mHasForwarded && !expired && difference() <= mThreshold) {
+            mSkippedCount++;
+            return;
+        }
+
+        System.arraycopy(mSignature, 0, mForwardedSignature, 0, mSignature.length);
+        mHasForwarded = true;
+        mForwardedTimestampNanos = timestamp;
+        mForwardedCount++;
+        mDownstream.process(frame);
+    }
+
+    public long getForwardedCount() {
+        return mForwardedCount;
+    }
+
+    public long getSkippedCount() {
+        return mSkippedCount;
+    }
+
+    private void extractSignature(Frame frame) {
+        int level = 0;
+        while (level < MAX_PYRAMID_LEVEL
+                && frame.getLumaLevelWidth(level + 1) >= GRID_COLUMNS
+                && frame.getLumaLevelHeight(level + 1) >= GRID_ROWS) {
+            level++;
+        }
+
+        ByteBuffer luma = frame.getLumaLevel(level);
+        int width = frame.getLumaLevelWidth(level);
+        int height = frame.getLumaLevelHeight(level);
+
+        for (int row = 0; row < GRID_ROWS; row++) {
+            int top = row * height / GRID_ROWS;
+            int bottom = Math.max(top + 1, (row + 1) * height / GRID_ROWS);
+            for (int column = 0; column < GRID_COLUMNS; column++) {
+                int left = column * width / GRID_COLUMNS;
+                int right = Math.max(left + 1, (column + 1) * width / GRID_COLUMNS);
+                int sum = 0;
+                for (int y = top; y < bottom; y++) {
+                    int offset = y * width;
+                    for (int x = left; x < right; x++) {
+                        sum += luma.get(offset + x) & 0xFF;
+                    }
+                }
+                mSignature[row * GRID_COLUMNS + column] = sum / ((bottom - top) * (right - left));
+            }
+        }
+    }
+
+    private float difference() {
+        int total = 0;
+        for (int i = 0; i < mSignature.length; i++) {
+            total += Math.abs(mSignature[i] - mForwardedSignature[i]);
+        }
+        return (float) total / mSignature.length;
+    }
+
+}
@@ -0,0 +1,15 @@
+package com.flurgle.camerakit;
+
+public abstract class SharpnessListener {
+
+    /**
+     * Called on the frame thread for each analyzed preview frame.
+     *
+     * @param sharpness variance of the luma Laplacian. Higher is sharper; the scale depends on
+     *                  scene content, so compare values from the same scene.
+     * @param motion    mean absolute luma change since the previous frame, 0 to 255, or NaN for
+     *                  the first frame.
+     */
+    public abstract void onSharpness(float sharpness, float motion, long timestampNanos);
+
+}
@@ -0,0 +1,20 @@
+package com.flurgle.camerakit;
+
+import android.support.annotation.IntDef;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+import static com.flurgle.camerakit.CameraKit.Constants.STAGE_ABORTED;
+import static com.flurgle.camerakit.CameraKit.Constants.STAGE_CALLBACK_DISPATCHED;
+import static com.flurgle.camerakit.CameraKit.Constants.STAGE_COMMAND_ENQUEUED;
+import static com.flurgle.camerakit.CameraKit.Constants.STAGE_CROP_DONE;
+import static com.flurgle.camerakit.CameraKit.Constants.STAGE_ENCODE_DONE;
+import static com.flurgle.camerakit.CameraKit.Constants.STAGE_FRAME_RECEIVED;
+import static com.flurgle.camerakit.CameraKit.Constants.STAGE_ROTATION_DONE;
+import static com.flurgle.camerakit.CameraKit.Constants.STAGE_SHUTTER;
+
+@Retention(RetentionPolicy.SOURCE)
+@IntDef({STAGE_COMMAND_ENQUEUED, STAGE_SHUTTER, STAGE_FRAME_RECEIVED, STAGE_ROTATION_DONE, STAGE_CROP_DONE, STAGE_ENCODE_DONE, STAGE_CALLBACK_DISPATCHED, STAGE_ABORTED})
+public @interface CaptureStage {
+}
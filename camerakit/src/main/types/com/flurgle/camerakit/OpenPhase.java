@@ -0,0 +1,23 @@
+package com.flurgle.camerakit;
+
+import android.support.annotation.IntDef;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+import static com.flurgle.camerakit.CameraKit.Constants.PHASE_ATTACH_SURFACE;
+import static com.flurgle.camerakit.CameraKit.Constants.PHASE_CAPTURE_RESOLUTION;
+import static com.flurgle.camerakit.CameraKit.Constants.PHASE_DISPLAY_ORIENTATION;
+import static com.flurgle.camerakit.CameraKit.Constants.PHASE_FIRST_FRAME;
+import static com.flurgle.camerakit.CameraKit.Constants.PHASE_FLASH;
+import static com.flurgle.camerakit.CameraKit.Constants.PHASE_FOCUS;
+import static com.flurgle.camerakit.CameraKit.Constants.PHASE_GET_PARAMETERS;
+import static com.flurgle.camerakit.CameraKit.Constants.PHASE_OPEN;
+import static com.flurgle.camerakit.CameraKit.Constants.PHASE_SET_PARAMETERS;
+import static com.flurgle.camerakit.CameraKit.Constants.PHASE_START_PREVIEW;
+import static com.flurgle.camerakit.CameraKit.Constants.PHASE_TIME_TO_ATTACH;
+
+@Retention(RetentionPolicy.SOURCE)
+@IntDef({PHASE_OPEN, PHASE_GET_PARAMETERS, PHASE_CAPTURE_RESOLUTION, PHASE_FOCUS, PHASE_FLASH, PHASE_DISPLAY_ORIENTATION, PHASE_SET_PARAMETERS, PHASE_ATTACH_SURFACE, PHASE_START_PREVIEW, PHASE_FIRST_FRAME, PHASE_TIME_TO_ATTACH})
+public @interface OpenPhase {
+}
@@ -0,0 +1,14 @@
+package com.flurgle.camerakit;
+
+import android.support.annotation.IntDef;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+import static com.flurgle.camerakit.CameraKit.Constants.OUTPUT_BITMAP;
+import static com.flurgle.camerakit.CameraKit.Constants.OUTPUT_JPEG;
+
+@Retention(RetentionPolicy.SOURCE)
+@IntDef({OUTPUT_JPEG, OUTPUT_BITMAP})
+public @interface OutputFormat {
+}
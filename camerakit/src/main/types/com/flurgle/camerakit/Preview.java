@@ -0,0 +1,14 @@
+package com.flurgle.camerakit;
+
+import android.support.annotation.IntDef;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+import static com.flurgle.camerakit.CameraKit.Constants.PREVIEW_SURFACE_VIEW;
+import static com.flurgle.camerakit.CameraKit.Constants.PREVIEW_TEXTURE_VIEW;
+
+@Retention(RetentionPolicy.SOURCE)
+@IntDef({PREVIEW_TEXTURE_VIEW, PREVIEW_SURFACE_VIEW})
+public @interface Preview {
+}
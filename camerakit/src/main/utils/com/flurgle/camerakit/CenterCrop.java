@@ -22,28 +22,67 @@ public class CenterCrop {
     }
 
     public CenterCrop(byte[] jpeg, AspectRatio targetRatio, int jpegCompression) {
+        this(jpeg, targetRatio, jpegCompression, 0, 0);
+    }
+
+    /**
+     * Crops to {@code targetRatio} (or keeps the full frame when null) and limits the result to
+     * {@code maxWidth x maxHeight}. The region is decoded with an inSampleSize so decode and encode
+     * work follow the output size.
+     */
+    public CenterCrop(byte[] jpeg, AspectRatio targetRatio, int jpegCompression, int maxWidth, int maxHeight) {
         BitmapFactory.Options options = new BitmapFactory.Options();
         options.inJustDecodeBounds = true;
         BitmapFactory.decodeByteArray(jpeg, 0, jpeg.length, options);
 
-        Rect crop = getCrop(options.outWidth, options.outHeight, targetRatio);
+        // Devices that rotate through Exif store the pixels unrotated, so a quarter turn swaps
+        // the crop ratio.
+        int orientation = ExifOrientation.read(jpeg);
+        if (targetRatio != null && orientation >= ExifOrientation.ORIENTATION_TRANSPOSE) {
+            targetRatio = targetRatio.inverse();
+        }
+
+        Rect crop = targetRatio != null
+                ? getCrop(options.outWidth, options.outHeight, targetRatio)
+                : new Rect(0, 0, options.outWidth, options.outHeight);
+        Size target = Downscale.fit(crop.width(), crop.height(), maxWidth, maxHeight);
+        if (targetRatio == null && target == null) {
+            this.croppedJpeg = jpeg;
+            return;
+        }
+
+        BitmapFactory.Options regionOptions = new BitmapFactory.Options();
+        if (target != null) {
+            regionOptions.inSampleSize = Downscale.sampleSize(
+                    crop.width(), crop.height(), target.getWidth(), target.getHeight());
+        }
+
         try {
             Bitmap bitmap = BitmapRegionDecoder.newInstance(
                     jpeg,
                     0,
                     jpeg.length,
                     true
-            ).decodeRegion(crop, null);
+            ).decodeRegion(crop, regionOptions);
+
+            if (target != null && bitmap.getWidth() > target.getWidth()) {
+                Bitmap scaled = Bitmap.createScaledBitmap(bitmap, target.getWidth(), target.getHeight(), true);
+                bitmap.recycle();
+                bitmap = scaled;
+            }
 
             ByteArrayOutputStream out = new ByteArrayOutputStream();
             bitmap.compress(Bitmap.CompressFormat.JPEG, jpegCompression, out);
-            this.croppedJpeg = out.toByteArray();
+            // Encoding drops the camera's Exif segment, carry its orientation over.
+            this.croppedJpeg = orientation != ExifOrientation.ORIENTATION_NORMAL
+                    ? ExifOrientation.write(out.toByteArray(), orientation)
+                    : out.toByteArray();
         } catch (IOException e) {
             Log.e("CameraKit", e.toString());
         }
     }
 
-    private static Rect getCrop(int currentWidth, int currentHeight, AspectRatio targetRatio) {
+    static Rect getCrop(int currentWidth, int currentHeight, AspectRatio targetRatio) {
         AspectRatio currentRatio = AspectRatio.of(currentWidth, currentHeight);
 
         Rect crop;
@@ -1,6 +1,9 @@
 package com.flurgle.camerakit;
 
+import android.annotation.TargetApi;
 import android.content.Context;
+import android.hardware.display.DisplayManager;
+import android.os.Build;
 import android.util.SparseIntArray;
 import android.view.Display;
 import android.view.OrientationEventListener;
@@ -8,8 +11,6 @@ import android.view.Surface;
 
 public abstract class DisplayOrientationDetector {
 
-    private final OrientationEventListener mOrientationEventListener;
-
     static final SparseIntArray DISPLAY_ORIENTATIONS = new SparseIntArray();
     static {
         DISPLAY_ORIENTATIONS.put(Surface.ROTATION_0, 0);
@@ -18,46 +19,150 @@ public abstract class DisplayOrientationDetector {
         DISPLAY_ORIENTATIONS.put(Surface.ROTATION_270, 270);
     }
 
+    private final Context mContext;
+
+    private OrientationEventListener mOrientationEventListener;
+    private Object mDisplayListener;
+
+    private boolean mSensorFallback;
+
     private Display mDisplay;
 
+    private int mLastKnownRotation = -1;
     private int mLastKnownDisplayOrientation = 0;
 
     public DisplayOrientationDetector(Context context) {
-        mOrientationEventListener = new OrientationEventListener(context) {
-
-            private int mLastKnownRotation = -1;
-
-            @Override
-            public void onOrientationChanged(int orientation) {
-                if (orientation == OrientationEventListener.ORIENTATION_UNKNOWN || mDisplay == null) {
-                    return;
-                }
+        mContext = context;
+    }
 
-                final int rotation = mDisplay.getRotation();
-                if (mLastKnownRotation != rotation) {
-                    mLastKnownRotation = rotation;
-                    dispatchOnDisplayOrientationChanged(DISPLAY_ORIENTATIONS.get(rotation));
-                }
-            }
+    /**
+     * Track rotation with the accelerometer instead of display change events. Sensor callbacks
+     * arrive at sensor rate for the whole session, so this is only meant for devices whose
+     * display listener misses 180 degree flips. Pre-17 devices always use the sensor.
+     */
+    public void setSensorFallback(boolean sensorFallback) {
+        if (mSensorFallback == sensorFallback) {
+            return;
+        }
+
+        Display display = mDisplay;
+        if (display != null) {
+            disable();
+        }
+        mSensorFallback = sensorFallback;
+        if (display != null) {
+            enable(display);
+        }
+    }
 
-        };
+    public boolean isSensorFallback() {
+        return mSensorFallback;
     }
 
     public void enable(Display display) {
+        if (display == null) {
+            return;
+        }
+
         mDisplay = display;
-        mOrientationEventListener.enable();
-        dispatchOnDisplayOrientationChanged(DISPLAY_ORIENTATIONS.get(display.getRotation()));
+        mLastKnownRotation = -1;
+        if (mSensorFallback || Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            enableSensor();
+        } else {
+            enableDisplayListener();
+        }
+        checkRotation();
     }
 
     public void disable() {
-        mOrientationEventListener.disable();
+        if (mOrientationEventListener != null) {
+            mOrientationEventListener.disable();
+        }
+        if (mDisplayListener != null) {
+            disableDisplayListener();
+        }
         mDisplay = null;
     }
 
+    /**
+     * Re-reads the display rotation. Hosts forward configuration changes here so a rotation is
+     * picked up even when no display event is delivered for it.
+     */
+    public void onConfigurationChanged() {
+        checkRotation();
+    }
+
     public int getLastKnownDisplayOrientation() {
         return mLastKnownDisplayOrientation;
     }
 
+    private void checkRotation() {
+        Display display = mDisplay;
+        if (display == null) {
+            return;
+        }
+
+        int rotation = display.getRotation();
+        if (rotation != mLastKnownRotation) {
+            mLastKnownRotation = rotation;
+            dispatchOnDisplayOrientationChanged(DISPLAY_ORIENTATIONS.get(rotation));
+        }
+    }
+
+    private void enableSensor() {
+        if (mOrientationEventListener == null) {
+            mOrientationEventListener = new OrientationEventListener(mContext) {
+                @Override
+                public void onOrientationChanged(int orientation) {
+                    if (orientation == OrientationEventListener.ORIENTATION_UNKNOWN) {
+                        return;
+                    }
+
+                    checkRotation();
+                }
+            };
+        }
+        mOrientationEventListener.enable();
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+    private void enableDisplayListener() {
+        DisplayManager displayManager = (DisplayManager) mContext.getSystemService(Context.DISPLAY_SERVICE);
+        if (displayManager == null) {
+            enableSensor();
+            return;
+        }
+
+        if (mDisplayListener == null) {
+            mDisplayListener = new DisplayManager.DisplayListener() {
+                @Override
+                public void onDisplayAdded(int displayId) {
+                }
+
+                @Override
+                public void onDisplayRemoved(int displayId) {
+                }
+
+                @Override
+                public void onDisplayChanged(int displayId) {
+                    Display display = mDisplay;
+                    if (display != null && display.getDisplayId() == displayId) {
+                        checkRotation();
+                    }
+                }
+            };
+        }
+        displayManager.registerDisplayListener((DisplayManager.DisplayListener) mDisplayListener, null);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+    private void disableDisplayListener() {
+        DisplayManager displayManager = (DisplayManager) mContext.getSystemService(Context.DISPLAY_SERVICE);
+        if (displayManager != null) {
+            displayManager.unregisterDisplayListener((DisplayManager.DisplayListener) mDisplayListener);
+        }
+    }
+
     void dispatchOnDisplayOrientationChanged(int displayOrientation) {
         mLastKnownDisplayOrientation = displayOrientation;
         onDisplayOrientationChanged(displayOrientation);
@@ -65,4 +170,4 @@ public abstract class DisplayOrientationDetector {
 
     public abstract void onDisplayOrientationChanged(int displayOrientation);
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,134 @@
+package com.flurgle.camerakit;
+
+import android.graphics.Rect;
+
+/**
+ * Output size limits applied before encoding, so encode cost follows the requested size rather
+ * than the sensor size.
+ */
+class Downscale {
+
+    private Downscale() {
+    }
+
+    /**
+     * Largest even size with the aspect of {@code width x height} that fits in the output bounds,
+     * or null when no scaling is needed. Bounds are orientation agnostic: the longer side is held
+     * to the longer bound. A bound of 0 means unlimited.
+     */
+    static Size fit(int width, int height, int maxWidth, int maxHeight) {
+        if (maxWidth <= 0 && maxHeight <= 0) {
+            return null;
+        }
+
+        int longBound = Math.max(maxWidth, maxHeight);
+        int shortBound = maxWidth > 0 && maxHeight > 0 ? Math.min(maxWidth, maxHeight) : longBound;
+        int longSide = Math.max(width, height);
+        int shortSide = Math.min(width, height);
+
+        float scale = Math.min((float) longBound / longSide, (float) shortBound / shortSide);
+        if (scale >= 1f) {
+            return null;
+        }
+
+        int outWidth = Math.max(2, Math.round(width * scale) & ~1);
+        int outHeight = Math.max(2, Math.round(height * scale) & ~1);
+        return new Size(outWidth, outHeight);
+    }
+
+    /**
+     * Largest power of two sample size that still decodes at or above the target size.
+     */
+    static int sampleSize(int width, int height, int targetWidth, int targetHeight) {
+        int sampleSize = 1;
+        while (width / (sampleSize * 2) >= targetWidth && height / (sampleSize * 2) >= targetHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /**
+     * Box filters the {@code crop} region of an NV21 frame down to {@code outWidth x outHeight}.
+     * Each output sample averages its full source footprint, with chroma handled at quarter
+     * resolution.
+     */
+    static byte[] nv21(byte[] yuv, int width, int height, Rect crop, int outWidth, int outHeight) {
+        byte[] out = new byte[outWidth * outHeight * 3 / 2];
+        nv21(yuv, width, height, crop, outWidth, outHeight, out, new int[scratchSize(outWidth)]);
+        return out;
+    }
+
+    /**
+     * Same as {@link #nv21(byte[], int, int, Rect, int, int)}, writing into a caller owned buffer
+     * of at least {@code outWidth * outHeight * 3 / 2} bytes and filtering with a caller owned
+     * {@code scratch} of at least {@link #scratchSize(int)} ints, so repeated calls don't allocate.
+     * Only the crop region is read, so the cost follows the region and output sizes rather than
+     * the frame size.
+     */
+    static void nv21(byte[] yuv, int width, int height, Rect crop, int outWidth, int outHeight, byte[] out, int[] scratch) {
+        int left = crop.left & ~1;
+        int top = crop.top & ~1;
+        int cropWidth = (crop.right - left) & ~1;
+        int cropHeight = (crop.bottom - top) & ~1;
+
+        boxFilter(yuv, 0, width, 1, left, top, cropWidth, cropHeight,
+                out, 0, outWidth, outWidth, outHeight, 0, scratch);
+
+        int frameSize = width * height;
+        int outFrameSize = outWidth * outHeight;
+        boxFilter(yuv, frameSize, width, 2, left / 2, top / 2, cropWidth / 2, cropHeight / 2,
+                out, outFrameSize, outWidth, outWidth / 2, outHeight / 2, 0, scratch);
+        boxFilter(yuv, frameSize, width, 2, left / 2, top / 2, cropWidth / 2, cropHeight / 2,
+                out, outFrameSize, outWidth, outWidth / 2, outHeight / 2, 1, scratch);
+    }
+
+    /**
+     * Ints of scratch space {@link #nv21(byte[], int, int, Rect, int, int, byte[], int[])} needs
+     * for an output {@code outWidth} wide.
+     */
+    static int scratchSize(int outWidth) {
+        return 2 * outWidth + 1;
+    }
+
+    private static void boxFilter(byte[] src, int srcOffset, int srcStride, int pixelStride,
+                                  int left, int top, int srcWidth, int srcHeight,
+                                  byte[] dst, int dstOffset, int dstStride, int dstWidth, int dstHeight,
+                                  int channel, int[] scratch) {
+        // Column boundaries in scratch[0..dstWidth], row sums after them.
+        int[] xStart = scratch;
+        int sums = dstWidth + 1;
+        for (int x = 0; x <= dstWidth; x++) {
+            xStart[x] = left + (int) ((long) x * srcWidth / dstWidth);
+        }
+
+        for (int y = 0; y < dstHeight; y++) {
+            int y0 = top + (int) ((long) y * srcHeight / dstHeight);
+            int y1 = Math.max(y0 + 1, top + (int) ((long) (y + 1) * srcHeight / dstHeight));
+
+            for (int x = 0; x < dstWidth; x++) {
+                scratch[sums + x] = 0;
+            }
+
+            for (int sy = y0; sy < y1; sy++) {
+                int row = srcOffset + sy * srcStride + channel;
+                for (int x = 0; x < dstWidth; x++) {
+                    int x0 = xStart[x];
+                    int x1 = Math.max(x0 + 1, xStart[x + 1]);
+                    int sum = 0;
+                    for (int sx = x0; sx < x1; sx++) {
+                        sum += src[row + sx * pixelStride] & 0xFF;
+                    }
+                    scratch[sums + x] += sum;
+                }
+            }
+
+            int rows = y1 - y0;
+            int out = dstOffset + y * dstStride + channel;
+            for (int x = 0; x < dstWidth; x++) {
+                int area = rows * Math.max(1, xStart[x + 1] - xStart[x]);
+                dst[out + x * pixelStride] = (byte) ((scratch[sums + x] + area / 2) / area);
+            }
+        }
+    }
+
+}
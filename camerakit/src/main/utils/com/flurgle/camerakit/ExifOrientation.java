@@ -0,0 +1,202 @@
+package com.flurgle.camerakit;
+
+/**
+ * Splices a minimal Exif APP1 segment holding only the orientation tag into an encoded JPEG,
+ * so the pixels can stay in sensor orientation and viewers rotate them on display.
+ */
+class ExifOrientation {
+
+    static final int ORIENTATION_NORMAL = 1;
+    static final int ORIENTATION_FLIP_HORIZONTAL = 2;
+    static final int ORIENTATION_ROTATE_180 = 3;
+    static final int ORIENTATION_FLIP_VERTICAL = 4;
+    static final int ORIENTATION_TRANSPOSE = 5;
+    static final int ORIENTATION_ROTATE_90 = 6;
+    static final int ORIENTATION_TRANSVERSE = 7;
+    static final int ORIENTATION_ROTATE_270 = 8;
+
+    static final int TAG_ORIENTATION = 0x0112;
+
+    private static final int MARKER_SOI = 0xD8;
+    private static final int MARKER_SOS = 0xDA;
+    private static final int MARKER_APP1 = 0xE1;
+
+    private static final byte[] EXIF_HEADER = {'E', 'x', 'i', 'f', 0, 0};
+
+    // Exif header, big endian TIFF header, IFD0 with a single SHORT entry, no next IFD.
+    private static final int SEGMENT_LENGTH = 2 + EXIF_HEADER.length + 8 + 2 + 12 + 4;
+
+    private ExifOrientation() {
+    }
+
+    /**
+     * The tag for a clockwise {@code rotation}, followed by a horizontal mirror if {@code mirror}.
+     */
+    static int fromRotation(int rotation, boolean mirror) {
+        switch ((rotation % 360 + 360) % 360) {
+            case 90:
+                return mirror ? ORIENTATION_TRANSPOSE : ORIENTATION_ROTATE_90;
+
+            case 180:
+                return mirror ? ORIENTATION_FLIP_VERTICAL : ORIENTATION_ROTATE_180;
+
+            case 270:
+                return mirror ? ORIENTATION_TRANSVERSE : ORIENTATION_ROTATE_270;
+
+            default:
+                return mirror ? ORIENTATION_FLIP_HORIZONTAL : ORIENTATION_NORMAL;
+        }
+    }
+
+    /**
+     * Returns a copy of {@code jpeg} with an Exif segment directly after SOI carrying the
+     * orientation for a clockwise {@code rotation} and optional horizontal {@code mirror}. An
+     * existing Exif segment is dropped.
+     */
+    static byte[] write(byte[] jpeg, int rotation, boolean mirror) {
+        return write(jpeg, fromRotation(rotation, mirror));
+    }
+
+    /**
+     * Same as {@link #write(byte[], int, boolean)} for an orientation tag value, such as one
+     * returned by {@link #read(byte[])}.
+     */
+    static byte[] write(byte[] jpeg, int orientation) {
+        if (jpeg == null || jpeg.length < 4 || (jpeg[0] & 0xFF) != 0xFF || (jpeg[1] & 0xFF) != MARKER_SOI) {
+            throw new IllegalArgumentException("Not a JPEG stream");
+        }
+
+        int existingStart = -1;
+        int existingEnd = -1;
+        int offset = 2;
+        while (offset + 4 <= jpeg.length && (jpeg[offset] & 0xFF) == 0xFF) {
+            int marker = jpeg[offset + 1] & 0xFF;
+            if (marker == MARKER_SOS) {
+                break;
+            }
+
+            int length = ((jpeg[offset + 2] & 0xFF) << 8) | (jpeg[offset + 3] & 0xFF);
+            if (marker == MARKER_APP1 && isExif(jpeg, offset + 4)) {
+                existingStart = offset;
+                existingEnd = offset + 2 + length;
+                break;
+            }
+            offset += 2 + length;
+        }
+
+        int removed = existingStart >= 0 ? existingEnd - existingStart : 0;
+        byte[] out = new byte[jpeg.length - removed + 2 + SEGMENT_LENGTH];
+        out[0] = (byte) 0xFF;
+        out[1] = (byte) MARKER_SOI;
+        int pos = writeSegment(out, 2, orientation);
+
+        if (existingStart >= 0) {
+            System.arraycopy(jpeg, 2, out, pos, existingStart - 2);
+            pos += existingStart - 2;
+            System.arraycopy(jpeg, existingEnd, out, pos, jpeg.length - existingEnd);
+        } else {
+            System.arraycopy(jpeg, 2, out, pos, jpeg.length - 2);
+        }
+        return out;
+    }
+
+    /**
+     * Reads the orientation tag back out of IFD0, or {@link #ORIENTATION_NORMAL} when the stream
+     * carries none.
+     */
+    static int read(byte[] jpeg) {
+        int offset = 2;
+        while (offset + 4 <= jpeg.length && (jpeg[offset] & 0xFF) == 0xFF) {
+            int marker = jpeg[offset + 1] & 0xFF;
+            if (marker == MARKER_SOS) {
+                break;
+            }
+
+            int length = ((jpeg[offset + 2] & 0xFF) << 8) | (jpeg[offset + 3] & 0xFF);
+            if (marker == MARKER_APP1 && isExif(jpeg, offset + 4)) {
+                int tiff = offset + 4 + EXIF_HEADER.length;
+                boolean little = jpeg[tiff] == 'I';
+                int ifd = tiff + readInt(jpeg, tiff + 4, little);
+                int count = readShort(jpeg, ifd, little);
+                for (int i = 0; i < count; i++) {
+                    int entry = ifd + 2 + i * 12;
+                    if (readShort(jpeg, entry, little) == TAG_ORIENTATION) {
+                        return readShort(jpeg, entry + 8, little);
+                    }
+                }
+                return ORIENTATION_NORMAL;
+            }
+            offset += 2 + length;
+        }
+        return ORIENTATION_NORMAL;
+    }
+
+    private static int writeSegment(byte[] out, int pos, int orientation) {
+        out[pos++] = (byte) 0xFF;
+        out[pos++] = (byte) MARKER_APP1;
+        out[pos++] = (byte) (SEGMENT_LENGTH >> 8);
+        out[pos++] = (byte) SEGMENT_LENGTH;
+
+        System.arraycopy(EXIF_HEADER, 0, out, pos, EXIF_HEADER.length);
+        pos += EXIF_HEADER.length;
+
+        // TIFF header: "MM", 42, IFD0 at offset 8.
+        out[pos++] = 'M';
+        out[pos++] = 'M';
+        out[pos++] = 0;
+        out[pos++] = 42;
+        out[pos++] = 0;
+        out[pos++] = 0;
+        out[pos++] = 0;
+        out[pos++] = 8;
+
+        // IFD0: one entry, orientation as SHORT with count 1, value left aligned.
+        out[pos++] = 0;
+        out[pos++] = 1;
+        out[pos++] = (byte) (TAG_ORIENTATION >> 8);
+        out[pos++] = (byte) TAG_ORIENTATION;
+        out[pos++] = 0;
+        out[pos++] = 3;
+        out[pos++] = 0;
+        out[pos++] = 0;
+        out[pos++] = 0;
+        out[pos++] = 1;
+        out[pos++] = (byte) (orientation >> 8);
+        out[pos++] = (byte) orientation;
+        out[pos++] = 0;
+        out[pos++] = 0;
+
+        // No next IFD.
+        out[pos++] = 0;
+        out[pos++] = 0;
+        out[pos++] = 0;
+        out[pos++] = 0;
+        return pos;
+    }
+
+    private static boolean isExif(byte[] jpeg, int offset) {
+        if (offset + EXIF_HEADER.length > jpeg.length) {
+            return false;
+        }
+
+        for (int i = 0; i < EXIF_HEADER.length; i++) {
+            if (jpeg[offset + i] != EXIF_HEADER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int readShort(byte[] data, int offset, boolean little) {
+        int a = data[offset] & 0xFF;
+        int b = data[offset + 1] & 0xFF;
+        return little ? (b << 8) | a : (a << 8) | b;
+    }
+
+    private static int readInt(byte[] data, int offset, boolean little) {
+        int hi = readShort(data, little ? offset + 2 : offset, little);
+        int lo = readShort(data, little ? offset : offset + 2, little);
+        return (hi << 16) | lo;
+    }
+
+}
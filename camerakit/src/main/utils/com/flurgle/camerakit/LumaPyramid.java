@@ -0,0 +1,75 @@
+package com.flurgle.camerakit;
+
+/**
+ * Successively halved copies of a luma plane. Each level is a 2x2 box average of the one above
+ * it, so a level costs a quarter of the previous one and deeper levels never touch the full
+ * frame. Levels are built on demand and their buffers are kept for the next frame.
+ */
+class LumaPyramid {
+
+    static final int MAX_LEVEL = 8;
+
+    private final byte[][] mLevels = new byte[MAX_LEVEL + 1][];
+    private final int[] mWidths = new int[MAX_LEVEL + 1];
+    private final int[] mHeights = new int[MAX_LEVEL + 1];
+    private int mBuiltLevel;
+
+    /**
+     * Starts a new frame. {@code luma} becomes level 0 and is read, never copied or written.
+     */
+    void reset(byte[] luma, int width, int height) {
+        mLevels[0] = luma;
+        mWidths[0] = width;
+        mHeights[0] = height;
+        for (int level = 1; level <= MAX_LEVEL; level++) {
+            mWidths[level] = width >> level;
+            mHeights[level] = height >> level;
+        }
+        mBuiltLevel = 0;
+    }
+
+    int getWidth(int level) {
+        return mWidths[level];
+    }
+
+    int getHeight(int level) {
+        return mHeights[level];
+    }
+
+    /**
+     * The pixels of {@code level}, {@link #getWidth(int)} bytes per row. Building a level builds
+     * any missing levels above it first.
+     */
+    byte[] getLevel(int level) {
+        if (level < 0 || level > MAX_LEVEL || mWidths[level] == 0 || mHeights[level] == 0) {
+            throw new IllegalArgumentException("No pyramid level " + level + " for "
+                    + mWidths[0] + "x" + mHeights[0]);
+        }
+
+        while (mBuiltLevel < level) {
+            int next = mBuiltLevel + 1;
+            int size = mWidths[next] * mHeights[next];
+            if (mLevels[next] == null || mLevels[next].length != size) {
+                mLevels[next] = new byte[size];
+            }
+            halve(mLevels[mBuiltLevel], mWidths[mBuiltLevel], mLevels[next], mWidths[next], mHeights[next]);
+            mBuiltLevel = next;
+        }
+        return mLevels[level];
+    }
+
+    private static void halve(byte[] src, int srcStride, byte[] dst, int dstWidth, int dstHeight) {
+        for (int y = 0; y < dstHeight; y++) {
+            int top = 2 * y * srcStride;
+            int bottom = top + srcStride;
+            int out = y * dstWidth;
+            for (int x = 0; x < dstWidth; x++) {
+                int sx = 2 * x;
+                int sum = (src[top + sx] & 0xFF) + (src[top + sx + 1] & 0xFF)
+                        + (src[bottom + sx] & 0xFF) + (src[bottom + sx + 1] & 0xFF);
+                dst[out + x] = (byte) ((sum + 2) >> 2);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,81 @@
+package com.flurgle.camerakit;
+
+/**
+ * Computes how a preview buffer has to be scaled around the view center so that it fills
+ * ({@link #SCALE_CENTER_CROP}) or fits inside ({@link #SCALE_FIT}) the view without
+ * distortion. The result is only recomputed when one of the inputs changes.
+ */
+class PreviewTransform {
+
+    static final int SCALE_CENTER_CROP = 0;
+    static final int SCALE_FIT = 1;
+
+    private int mViewWidth;
+    private int mViewHeight;
+    private int mContentWidth;
+    private int mContentHeight;
+    private int mScaleType = -1;
+
+    private float mScaleX = 1;
+    private float mScaleY = 1;
+
+    /**
+     * @return true if any input changed and the scale was recomputed.
+     */
+    boolean update(int viewWidth, int viewHeight, int contentWidth, int contentHeight, int scaleType) {
+        if (viewWidth == mViewWidth && viewHeight == mViewHeight
+                && contentWidth == mContentWidth && contentHeight == mContentHeight
+                && scaleType == mScaleType) {
+            return false;
+        }
+
+        mViewWidth = viewWidth;
+        mViewHeight = viewHeight;
+        mContentWidth = contentWidth;
+        mContentHeight = contentHeight;
+        mScaleType = scaleType;
+
+        if (viewWidth <= 0 || viewHeight <= 0 || contentWidth <= 0 || contentHeight <= 0) {
+            mScaleX = 1;
+            mScaleY = 1;
+            return true;
+        }
+
+        float widthRatio = (float) viewWidth / contentWidth;
+        float heightRatio = (float) viewHeight / contentHeight;
+        float scale = scaleType == SCALE_FIT
+                ? Math.min(widthRatio, heightRatio)
+                : Math.max(widthRatio, heightRatio);
+
+        // The buffer is stretched to the view bounds before any transform is applied, so the
+        // scale is expressed relative to the view size on each axis.
+        mScaleX = contentWidth * scale / viewWidth;
+        mScaleY = contentHeight * scale / viewHeight;
+        return true;
+    }
+
+    float getScaleX() {
+        return mScaleX;
+    }
+
+    float getScaleY() {
+        return mScaleY;
+    }
+
+    float getPivotX() {
+        return mViewWidth / 2f;
+    }
+
+    float getPivotY() {
+        return mViewHeight / 2f;
+    }
+
+    float getTranslateX() {
+        return (1 - mScaleX) * getPivotX();
+    }
+
+    float getTranslateY() {
+        return (1 - mScaleY) * getPivotY();
+    }
+
+}
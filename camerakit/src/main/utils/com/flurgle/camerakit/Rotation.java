@@ -1,50 +1,211 @@
 package com.flurgle.camerakit;
 
+import android.graphics.ImageFormat;
+
+/**
+ * Rotates 4:2:0 frames clockwise into NV21, the layout {@code YuvImage} understands. Each source
+ * layout is resolved into plane offsets and strides up front, so every plane is copied by the
+ * same branch-free loop that walks the input rows and steps the output by a fixed amount.
+ * Mirroring only changes those steps, so rotating and mirroring still take a single pass.
+ */
 public class Rotation {
 
+    public static final int MIRROR_NONE = 0;
+    public static final int MIRROR_HORIZONTAL = 1;
+    public static final int MIRROR_VERTICAL = 2;
+
+    /**
+     * Tightly packed planar Y, U, V, as produced by copying out a {@code YUV_420_888} image.
+     */
+    static final int FORMAT_I420 = ImageFormat.YUV_420_888;
+
     private byte[] rotatedYuv;
 
     public Rotation(final byte[] yuv, final int width, final int height, final int rotation) {
-        if (rotation == 0) this.rotatedYuv = yuv;
-        if (rotation % 90 != 0 || rotation < 0 || rotation > 270) {
-            throw new IllegalArgumentException("0 <= rotation < 360, rotation % 90 == 0");
+        this(yuv, width, height, ImageFormat.NV21, rotation);
+    }
+
+    public Rotation(final byte[] yuv, final int width, final int height, final int format, final int rotation) {
+        this(yuv, width, height, format, rotation, MIRROR_NONE);
+    }
+
+    /**
+     * Rotates clockwise by {@code rotation}, then mirrors the rotated frame as given by the
+     * {@code MIRROR_*} flags.
+     */
+    public Rotation(final byte[] yuv, final int width, final int height, final int format, int rotation, int mirror) {
+        checkRotation(rotation);
+
+        // A vertical mirror is a horizontal one turned by 180 degrees.
+        if ((mirror & MIRROR_VERTICAL) != 0) {
+            rotation = (rotation + 180) % 360;
+            mirror ^= MIRROR_VERTICAL | MIRROR_HORIZONTAL;
+        }
+        final boolean mirrored = (mirror & MIRROR_HORIZONTAL) != 0;
+
+        if (rotation == 0 && !mirrored && format == ImageFormat.NV21) {
+            this.rotatedYuv = yuv;
+            return;
+        }
+
+        int chromaWidth = width / 2;
+        int chromaHeight = height / 2;
+        switch (format) {
+            case ImageFormat.NV21: {
+                int frameSize = width * height;
+                this.rotatedYuv = rotate(
+                        new Plane(yuv, 0, width, 1),
+                        new Plane(yuv, frameSize + 1, width, 2),
+                        new Plane(yuv, frameSize, width, 2),
+                        width, height, rotation, mirrored
+                );
+                break;
+            }
+
+            case ImageFormat.YV12: {
+                // YV12 aligns the luma stride to 16 and the chroma stride to 16 as well.
+                int yStride = align16(width);
+                int uvStride = align16(yStride / 2);
+                int vOffset = yStride * height;
+                int uOffset = vOffset + uvStride * chromaHeight;
+                this.rotatedYuv = rotate(
+                        new Plane(yuv, 0, yStride, 1),
+                        new Plane(yuv, uOffset, uvStride, 1),
+                        new Plane(yuv, vOffset, uvStride, 1),
+                        width, height, rotation, mirrored
+                );
+                break;
+            }
+
+            case FORMAT_I420: {
+                int uOffset = width * height;
+                int vOffset = uOffset + chromaWidth * chromaHeight;
+                this.rotatedYuv = rotate(
+                        new Plane(yuv, 0, width, 1),
+                        new Plane(yuv, uOffset, chromaWidth, 1),
+                        new Plane(yuv, vOffset, chromaWidth, 1),
+                        width, height, rotation, mirrored
+                );
+                break;
+            }
+
+            default:
+                throw new IllegalArgumentException("Unsupported preview format " + format);
         }
+    }
+
+    public byte[] getYuv() {
+        return this.rotatedYuv;
+    }
+
+    /**
+     * A plane of a 4:2:0 image: where its first sample is, the bytes between rows and the bytes
+     * between neighbouring samples in a row (2 for interleaved chroma).
+     */
+    static final class Plane {
 
-        final byte[] output = new byte[yuv.length];
-        final int frameSize = width * height;
-        final boolean swap = rotation % 180 != 0;
-        final boolean xflip = rotation % 270 != 0;
-        final boolean yflip = rotation >= 180;
+        final byte[] data;
+        final int offset;
+        final int rowStride;
+        final int pixelStride;
+
+        Plane(byte[] data, int offset, int rowStride, int pixelStride) {
+            this.data = data;
+            this.offset = offset;
+            this.rowStride = rowStride;
+            this.pixelStride = pixelStride;
+        }
+
+    }
+
+    /**
+     * Rotates three arbitrary planes, for example the planes of a {@code YUV_420_888} image, into
+     * a new NV21 frame.
+     */
+    static byte[] rotate(Plane y, Plane u, Plane v, int width, int height, int rotation, boolean mirror) {
+        checkRotation(rotation);
+
+        int frameSize = width * height;
+        byte[] output = new byte[frameSize + 2 * (width / 2) * (height / 2)];
+        rotatePlane(y.data, y.offset, y.rowStride, y.pixelStride, width, height,
+                output, 0, 1, rotation, mirror);
+        rotatePlane(v.data, v.offset, v.rowStride, v.pixelStride, width / 2, height / 2,
+                output, frameSize, 2, rotation, mirror);
+        rotatePlane(u.data, u.offset, u.rowStride, u.pixelStride, width / 2, height / 2,
+                output, frameSize + 1, 2, rotation, mirror);
+        return output;
+    }
+
+    /**
+     * Rotates only the Y plane of {@code yuv} clockwise into {@code output}, a third of the work
+     * of a full NV21 rotation.
+     */
+    static void rotateLuma(byte[] yuv, int width, int height, int rotation, byte[] output) {
+        checkRotation(rotation);
+        rotatePlane(yuv, 0, width, 1, width, height, output, 0, 1, rotation, false);
+    }
+
+    static void rotatePlane(byte[] src, int srcOffset, int srcRowStride, int srcPixelStride,
+                            int width, int height,
+                            byte[] dst, int dstOffset, int dstPixelStride, int rotation, boolean mirror) {
+        // Output position of input sample (0, 0) and how it moves per input column and row,
+        // in samples of a tightly packed output plane.
+        int start = outputIndex(0, 0, width, height, rotation, mirror);
+        int xStep = (outputIndex(1, 0, width, height, rotation, mirror) - start) * dstPixelStride;
+        int yStep = outputIndex(0, 1, width, height, rotation, mirror) - start;
 
         for (int j = 0; j < height; j++) {
+            int in = srcOffset + j * srcRowStride;
+            int out = dstOffset + (start + j * yStep) * dstPixelStride;
             for (int i = 0; i < width; i++) {
-                final int yIn = j * width + i;
-                final int uIn = frameSize + (j >> 1) * width + (i & ~1);
-                final int vIn = uIn + 1;
-
-                final int wOut = swap ? height : width;
-                final int hOut = swap ? width : height;
-                final int iSwapped = swap ? j : i;
-                final int jSwapped = swap ? i : j;
-                final int iOut = xflip ? wOut - iSwapped - 1 : iSwapped;
-                final int jOut = yflip ? hOut - jSwapped - 1 : jSwapped;
-
-                final int yOut = jOut * wOut + iOut;
-                final int uOut = frameSize + (jOut >> 1) * wOut + (iOut & ~1);
-                final int vOut = uOut + 1;
-
-                output[yOut] = (byte) (0xff & yuv[yIn]);
-                output[uOut] = (byte) (0xff & yuv[uIn]);
-                output[vOut] = (byte) (0xff & yuv[vIn]);
+                dst[out] = src[in];
+                in += srcPixelStride;
+                out += xStep;
             }
         }
+    }
+
+    // The mapping is affine in (i, j), so it is only evaluated at three points per plane.
+    private static int outputIndex(int i, int j, int width, int height, int rotation, boolean mirror) {
+        int outWidth = rotation % 180 == 0 ? width : height;
+        int x;
+        int y;
+        switch (rotation) {
+            case 90:
+                x = height - 1 - j;
+                y = i;
+                break;
+
+            case 180:
+                x = width - 1 - i;
+                y = height - 1 - j;
+                break;
 
-        this.rotatedYuv = output;
+            case 270:
+                x = j;
+                y = width - 1 - i;
+                break;
+
+            default:
+                x = i;
+                y = j;
+                break;
+        }
+
+        if (mirror) {
+            x = outWidth - 1 - x;
+        }
+        return y * outWidth + x;
     }
 
-    public byte[] getYuv() {
-        return this.rotatedYuv;
+    private static void checkRotation(int rotation) {
+        if (rotation % 90 != 0 || rotation < 0 || rotation > 270) {
+            throw new IllegalArgumentException("0 <= rotation < 360, rotation % 90 == 0");
+        }
     }
 
-}
+    private static int align16(int value) {
+        return (value + 15) & ~15;
+    }
 
+}
@@ -0,0 +1,75 @@
+package com.flurgle.camerakit;
+
+/**
+ * Focus quality and motion of luma frames. Sharpness is the variance of the 4-neighbour
+ * Laplacian, evaluated on a sparse grid of full resolution pixels so fine detail still counts
+ * while the cost stays a fraction of a full pass. Motion is the mean absolute luma change at the
+ * same grid points since the previous frame measured by this meter.
+ */
+class SharpnessMeter {
+
+    static final int GRID_STEP = 4;
+
+    private byte[] mSamples;
+    private byte[] mPrevious;
+    private float mSharpness;
+    private float mMotion = Float.NaN;
+
+    void measure(byte[] luma, int width, int height) {
+        int columns = Math.max(0, (width - 2 + GRID_STEP - 1) / GRID_STEP);
+        int rows = Math.max(0, (height - 2 + GRID_STEP - 1) / GRID_STEP);
+        int count = columns * rows;
+        if (count == 0) {
+            mSharpness = 0;
+            mMotion = Float.NaN;
+            return;
+        }
+
+        if (mSamples == null || mSamples.length != count) {
+            mSamples = new byte[count];
+            mPrevious = null;
+        }
+        byte[] previous = mPrevious;
+        byte[] samples = mSamples;
+
+        long sum = 0;
+        long sumOfSquares = 0;
+        long difference = 0;
+        int i = 0;
+        for (int y = 1; y < height - 1; y += GRID_STEP) {
+            int row = y * width;
+            for (int x = 1; x < width - 1; x += GRID_STEP) {
+                int p = row + x;
+                int center = luma[p] & 0xFF;
+                int laplacian = 4 * center
+                        - (luma[p - 1] & 0xFF) - (luma[p + 1] & 0xFF)
+                        - (luma[p - width] & 0xFF) - (luma[p + width] & 0xFF);
+                sum += laplacian;
+                sumOfSquares += laplacian * laplacian;
+                if (previous != null) {
+                    difference += Math.abs(center - (previous[i] & 0xFF));
+                }
+                samples[i++] = (byte) center;
+            }
+        }
+
+        double mean = (double) sum / count;
+        mSharpness = (float) ((double) sumOfSquares / count - mean * mean);
+        mMotion = previous != null ? (float) difference / count : Float.NaN;
+
+        mSamples = previous != null ? previous : new byte[count];
+        mPrevious = samples;
+    }
+
+    float getSharpness() {
+        return mSharpness;
+    }
+
+    /**
+     * Mean absolute luma change, 0 to 255, or NaN when there is no earlier frame to compare with.
+     */
+    float getMotion() {
+        return mMotion;
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.flurgle.camerakit;
+
+import android.graphics.Bitmap;
+
+/**
+ * Builds a small upright ARGB preview of an NV21 frame by reading only every n-th sample, so it
+ * costs a few milliseconds regardless of the frame size.
+ */
+class Thumbnail {
+
+    private Thumbnail() {
+    }
+
+    static Bitmap fromNv21(byte[] nv21, int width, int height, int maxSide, int rotation, boolean mirror) {
+        int step = Math.max(1, (Math.max(width, height) + maxSide - 1) / maxSide);
+        int sampledWidth = width / step;
+        int sampledHeight = height / step;
+        boolean swap = rotation % 180 != 0;
+        int outWidth = swap ? sampledHeight : sampledWidth;
+        int outHeight = swap ? sampledWidth : sampledHeight;
+
+        int frameSize = width * height;
+        int[] argb = new int[outWidth * outHeight];
+        for (int oy = 0; oy < outHeight; oy++) {
+            for (int x0 = 0; x0 < outWidth; x0++) {
+                int ox = mirror ? outWidth - 1 - x0 : x0;
+                int tx;
+                int ty;
+                switch (rotation) {
+                    case 90:
+                        tx = oy;
+                        ty = sampledHeight - 1 - ox;
+                        break;
+
+                    case 180:
+                        tx = sampledWidth - 1 - ox;
+                        ty = sampledHeight - 1 - oy;
+                        break;
+
+                    case 270:
+                        tx = sampledWidth - 1 - oy;
+                        ty = ox;
+                        break;
+
+                    default:
+                        tx = ox;
+                        ty = oy;
+                        break;
+                }
+
+                int x = tx * step;
+                int y = ty * step;
+                int uv = frameSize + (y >> 1) * width + (x & ~1);
+                argb[oy * outWidth + x0] = YuvConverter.toArgb(
+                        nv21[y * width + x] & 0xFF,
+                        (nv21[uv + 1] & 0xFF) - 128,
+                        (nv21[uv] & 0xFF) - 128
+                );
+            }
+        }
+
+        return Bitmap.createBitmap(argb, outWidth, outHeight, Bitmap.Config.ARGB_8888);
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.flurgle.camerakit;
+
+import android.graphics.RectF;
+
+/**
+ * Maps rectangles from preview view coordinates back to the unrotated camera frame. It undoes,
+ * in reverse order, what the preview applies to a frame: the front camera mirror, the display
+ * rotation and the center crop into the view. Results are normalized to 0..1 of the frame.
+ */
+final class ViewTransform {
+
+    private final int mViewWidth;
+    private final int mViewHeight;
+    private final int mContentWidth;
+    private final int mContentHeight;
+    private final int mRotation;
+    private final boolean mMirror;
+    private final float mScale;
+
+    /**
+     * @param rotation clockwise rotation the preview applies to frames, as given to
+     *                 {@code setDisplayOrientation}.
+     */
+    ViewTransform(int viewWidth, int viewHeight, int frameWidth, int frameHeight, int rotation, boolean mirror) {
+        mViewWidth = viewWidth;
+        mViewHeight = viewHeight;
+        mRotation = rotation;
+        mMirror = mirror;
+        mContentWidth = rotation % 180 == 0 ? frameWidth : frameHeight;
+        mContentHeight = rotation % 180 == 0 ? frameHeight : frameWidth;
+        mScale = Math.max((float) viewWidth / mContentWidth, (float) viewHeight / mContentHeight);
+    }
+
+    void mapViewToFrame(RectF view, RectF out) {
+        float x0 = toContentX(view.left);
+        float y0 = toContentY(view.top);
+        float x1 = toContentX(view.right);
+        float y1 = toContentY(view.bottom);
+
+        float fx0;
+        float fy0;
+        float fx1;
+        float fy1;
+        switch (mRotation) {
+            case 90:
+                fx0 = y0;
+                fy0 = 1f - x0;
+                fx1 = y1;
+                fy1 = 1f - x1;
+                break;
+
+            case 180:
+                fx0 = 1f - x0;
+                fy0 = 1f - y0;
+                fx1 = 1f - x1;
+                fy1 = 1f - y1;
+                break;
+
+            case 270:
+                fx0 = 1f - y0;
+                fy0 = x0;
+                fx1 = 1f - y1;
+                fy1 = x1;
+                break;
+
+            default:
+                fx0 = x0;
+                fy0 = y0;
+                fx1 = x1;
+                fy1 = y1;
+                break;
+        }
+
+        if (mMirror) {
+            fx0 = 1f - fx0;
+            fx1 = 1f - fx1;
+        }
+
+        out.set(
+                clamp(Math.min(fx0, fx1)),
+                clamp(Math.min(fy0, fy1)),
+                clamp(Math.max(fx0, fx1)),
+                clamp(Math.max(fy0, fy1))
+        );
+    }
+
+    private float toContentX(float x) {
+        return ((x - mViewWidth / 2f) / mScale + mContentWidth / 2f) / mContentWidth;
+    }
+
+    private float toContentY(float y) {
+        return ((y - mViewHeight / 2f) / mScale + mContentHeight / 2f) / mContentHeight;
+    }
+
+    private static float clamp(float value) {
+        return value < 0f ? 0f : value > 1f ? 1f : value;
+    }
+
+}
@@ -0,0 +1,170 @@
+package com.flurgle.camerakit;
+
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Converts NV21 frames straight to ARGB, splitting the rows into bands that are converted in
+ * parallel. The kernel is integer only (BT.601 video range, 10 bit fixed point) and handles each
+ * 2x2 block with a single chroma lookup.
+ */
+class YuvConverter {
+
+    private static final int MIN_ROWS_PER_BAND = 64;
+
+    private static ExecutorService sExecutor;
+
+    private final int mThreads;
+
+    private int[] mArgb;
+    private Bitmap mPooledBitmap;
+
+    YuvConverter() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    YuvConverter(int threads) {
+        mThreads = Math.max(1, threads);
+    }
+
+    /**
+     * Converts the {@code crop} region of {@code nv21} into a Bitmap, reusing the pooled one when
+     * it has the right size.
+     */
+    synchronized Bitmap convert(byte[] nv21, int width, int height, Rect crop) {
+        int left = crop.left & ~1;
+        int top = crop.top & ~1;
+        int outWidth = (crop.right - left) & ~1;
+        int outHeight = (crop.bottom - top) & ~1;
+
+        int size = outWidth * outHeight;
+        if (mArgb == null || mArgb.length < size) {
+            mArgb = new int[size];
+        }
+        convert(nv21, width, height, left, top, outWidth, outHeight, mArgb);
+
+        Bitmap bitmap = mPooledBitmap;
+        mPooledBitmap = null;
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()
+                || bitmap.getWidth() != outWidth || bitmap.getHeight() != outHeight) {
+            bitmap = Bitmap.createBitmap(outWidth, outHeight, Bitmap.Config.ARGB_8888);
+        }
+        bitmap.setPixels(mArgb, 0, outWidth, 0, 0, outWidth, outHeight);
+        return bitmap;
+    }
+
+    /**
+     * Hands a Bitmap back for reuse by the next conversion.
+     */
+    synchronized void release(Bitmap bitmap) {
+        if (bitmap != null && bitmap.isMutable() && !bitmap.isRecycled()) {
+            mPooledBitmap = bitmap;
+        }
+    }
+
+    /**
+     * Returns the pooled Bitmap for use as {@code inBitmap}, or null. The caller owns it.
+     */
+    synchronized Bitmap obtain() {
+        Bitmap bitmap = mPooledBitmap;
+        mPooledBitmap = null;
+        return bitmap;
+    }
+
+    void convert(final byte[] nv21, final int width, final int height,
+                 final int left, final int top, final int outWidth, final int outHeight,
+                 final int[] argb) {
+        int bands = Math.min(mThreads, Math.max(1, outHeight / MIN_ROWS_PER_BAND));
+        if (bands == 1) {
+            convertRows(nv21, width, height, left, top, outWidth, 0, outHeight, argb);
+            return;
+        }
+
+        int rowsPerBand = ((outHeight / bands) + 1) & ~1;
+        final CountDownLatch latch = new CountDownLatch(bands - 1);
+        ExecutorService executor = getExecutor();
+        for (int band = 1; band < bands; band++) {
+            final int rowStart = band * rowsPerBand;
+            final int rowEnd = Math.min(outHeight, rowStart + rowsPerBand);
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        convertRows(nv21, width, height, left, top, outWidth, rowStart, rowEnd, argb);
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            });
+        }
+
+        convertRows(nv21, width, height, left, top, outWidth, 0, Math.min(outHeight, rowsPerBand), argb);
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static void convertRows(byte[] nv21, int width, int height, int left, int top, int outWidth,
+                            int rowStart, int rowEnd, int[] argb) {
+        int frameSize = width * height;
+        for (int y = rowStart; y < rowEnd; y += 2) {
+            int yIndex0 = (top + y) * width + left;
+            int yIndex1 = yIndex0 + width;
+            int uvIndex = frameSize + ((top + y) >> 1) * width + left;
+            int out0 = y * outWidth;
+            int out1 = out0 + outWidth;
+
+            for (int x = 0; x < outWidth; x += 2) {
+                int v = (nv21[uvIndex + x] & 0xFF) - 128;
+                int u = (nv21[uvIndex + x + 1] & 0xFF) - 128;
+                int rv = 1634 * v;
+                int guv = -833 * v - 400 * u;
+                int bu = 2066 * u;
+
+                argb[out0 + x] = pixel(nv21[yIndex0 + x], rv, guv, bu);
+                argb[out0 + x + 1] = pixel(nv21[yIndex0 + x + 1], rv, guv, bu);
+                argb[out1 + x] = pixel(nv21[yIndex1 + x], rv, guv, bu);
+                argb[out1 + x + 1] = pixel(nv21[yIndex1 + x + 1], rv, guv, bu);
+            }
+        }
+    }
+
+    static int toArgb(int y, int u, int v) {
+        return pixel((byte) y, 1634 * v, -833 * v - 400 * u, 2066 * u);
+    }
+
+    private static int pixel(byte luma, int rv, int guv, int bu) {
+        int c = Math.max(0, (luma & 0xFF) - 16) * 1192;
+        int r = clamp(c + rv);
+        int g = clamp(c + guv);
+        int b = clamp(c + bu);
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+
+    private static int clamp(int value) {
+        value = (value + 512) >> 10;
+        return value < 0 ? 0 : value > 255 ? 255 : value;
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (sExecutor == null) {
+            sExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "CameraKit-YuvConverter");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sExecutor;
+    }
+
+}
@@ -0,0 +1,222 @@
+package com.flurgle.camerakit;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CameraListenerRegistryTest {
+
+    @Test
+    public void inPlaceListenersRunInRegistrationOrder() {
+        final List<String> calls = new ArrayList<>();
+        CameraListenerRegistry registry = new CameraListenerRegistry();
+        registry.add(new RecordingListener("a", calls), null);
+        registry.add(new RecordingListener("b", calls), null);
+        registry.add(new RecordingListener("c", calls), null);
+
+        registry.onCameraOpened();
+        registry.onCameraClosed();
+
+        assertEquals(listOf("a:opened", "b:opened", "c:opened", "a:closed", "b:closed", "c:closed"), calls);
+    }
+
+    @Test
+    public void addingTwiceKeepsOneRegistration() {
+        List<String> calls = new ArrayList<>();
+        CameraListenerRegistry registry = new CameraListenerRegistry();
+        RecordingListener listener = new RecordingListener("a", calls);
+        registry.add(listener, null);
+        registry.add(listener, null);
+
+        registry.onCameraOpened();
+
+        assertEquals(listOf("a:opened"), calls);
+    }
+
+    @Test
+    public void executorListenerSeesEventsInOrder() throws Exception {
+        final int events = 2000;
+        final List<Integer> received = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch done = new CountDownLatch(events);
+        CameraListenerRegistry registry = new CameraListenerRegistry();
+        // A pool, so anything but the per-listener queue would reorder events.
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            registry.add(new CameraListener() {
+                @Override
+                public void onPictureTaken(byte[] jpeg) {
+                    received.add(jpeg.length);
+                    done.countDown();
+                }
+            }, pool);
+
+            for (int i = 0; i < events; i++) {
+                registry.onPictureTaken(new byte[i]);
+            }
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < events; i++) {
+                assertEquals(i, (int) received.get(i));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void slowListenerOnlyHoldsUpItself() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch fastDone = new CountDownLatch(3);
+        final CountDownLatch slowDone = new CountDownLatch(3);
+        CameraListenerRegistry registry = new CameraListenerRegistry();
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            registry.add(new CameraListener() {
+                @Override
+                public void onCameraOpened() {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    slowDone.countDown();
+                }
+            }, pool);
+            registry.add(new CameraListener() {
+                @Override
+                public void onCameraOpened() {
+                    fastDone.countDown();
+                }
+            }, pool);
+
+            for (int i = 0; i < 3; i++) {
+                registry.onCameraOpened();
+            }
+
+            assertTrue(fastDone.await(2, TimeUnit.SECONDS));
+            assertEquals(3, slowDone.getCount());
+        } finally {
+            release.countDown();
+            slowDone.await(2, TimeUnit.SECONDS);
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void removalDuringDispatchTakesEffectImmediately() {
+        final List<String> calls = new ArrayList<>();
+        final CameraListenerRegistry registry = new CameraListenerRegistry();
+        final RecordingListener later = new RecordingListener("later", calls);
+        registry.add(new RecordingListener("first", calls) {
+            @Override
+            public void onCameraOpened() {
+                super.onCameraOpened();
+                registry.remove(this);
+                registry.remove(later);
+            }
+        }, null);
+        registry.add(later, null);
+        registry.add(new RecordingListener("last", calls), null);
+
+        registry.onCameraOpened();
+        registry.onCameraClosed();
+
+        assertEquals(listOf("first:opened", "last:opened", "last:closed"), calls);
+    }
+
+    @Test
+    public void removedListenerDropsQueuedEvents() {
+        List<String> calls = new ArrayList<>();
+        QueueExecutor executor = new QueueExecutor();
+        CameraListenerRegistry registry = new CameraListenerRegistry();
+        RecordingListener listener = new RecordingListener("a", calls);
+        registry.add(listener, executor);
+
+        registry.onCameraOpened();
+        registry.onCameraClosed();
+        executor.runNext();
+        registry.remove(listener);
+        executor.runAll();
+
+        assertEquals(listOf("a:opened"), calls);
+    }
+
+    @Test
+    public void movingToAnotherExecutorDropsEventsQueuedOnTheOld() {
+        List<String> calls = new ArrayList<>();
+        QueueExecutor oldExecutor = new QueueExecutor();
+        QueueExecutor newExecutor = new QueueExecutor();
+        CameraListenerRegistry registry = new CameraListenerRegistry();
+        RecordingListener listener = new RecordingListener("a", calls);
+        registry.add(listener, oldExecutor);
+
+        registry.onCameraOpened();
+        registry.add(listener, newExecutor);
+        registry.onCameraClosed();
+        newExecutor.runAll();
+        oldExecutor.runAll();
+
+        assertEquals(listOf("a:closed"), calls);
+    }
+
+    private static List<String> listOf(String... calls) {
+        List<String> list = new ArrayList<>();
+        Collections.addAll(list, calls);
+        return list;
+    }
+
+    private static class RecordingListener extends CameraListener {
+
+        private final String mName;
+        private final List<String> mCalls;
+
+        RecordingListener(String name, List<String> calls) {
+            mName = name;
+            mCalls = calls;
+        }
+
+        @Override
+        public void onCameraOpened() {
+            mCalls.add(mName + ":opened");
+        }
+
+        @Override
+        public void onCameraClosed() {
+            mCalls.add(mName + ":closed");
+        }
+
+    }
+
+    // Runs posted work only when asked, so a test can stop between events.
+    private static class QueueExecutor implements Executor {
+
+        private final List<Runnable> mPending = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            mPending.add(command);
+        }
+
+        void runNext() {
+            mPending.remove(0).run();
+        }
+
+        void runAll() {
+            while (!mPending.isEmpty()) {
+                runNext();
+            }
+        }
+
+    }
+
+}
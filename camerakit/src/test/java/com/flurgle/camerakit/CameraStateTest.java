@@ -0,0 +1,164 @@
+package com.flurgle.camerakit;
+
+import android.graphics.Bitmap;
+import android.graphics.YuvImage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.flurgle.camerakit.CameraKit.Constants.METHOD_STANDARD;
+import static com.flurgle.camerakit.CameraKit.Constants.METHOD_STILL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 25)
+public class CameraStateTest {
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    // Completes each handle the way CameraView does once the picture is encoded.
+    private static final Capture.Callback COMPLETING = new Capture.Callback() {
+        @Override
+        public void onThumbnailReady(Capture capture, Bitmap thumbnail) {
+        }
+
+        @Override
+        public void onPictureTaken(Capture capture, byte[] jpeg) {
+            capture.complete(jpeg);
+        }
+
+        @Override
+        public void onPictureTaken(Capture capture, YuvImage yuv, int rotation, boolean mirrored) {
+            capture.complete(yuv.getYuvData());
+        }
+    };
+
+    private FakePreview mPreview;
+    private FakeCameraHardware mHardware;
+    private FakeCameraImpl mCamera;
+
+    @Before
+    public void setUp() {
+        mPreview = new FakePreview();
+        mHardware = new FakeCameraHardware();
+        mCamera = new FakeCameraImpl(new CameraListener() {
+        }, mPreview, mHardware);
+        mPreview.simulateSurfaceAvailable(720, 1280);
+    }
+
+    @After
+    public void tearDown() {
+        mCamera.stop();
+        mHardware.shutdown();
+    }
+
+    @Test
+    public void readersOnlySeeWholeSnapshots() throws Exception {
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicLong reads = new AtomicLong();
+        final AtomicLong torn = new AtomicLong();
+        Thread[] readers = new Thread[4];
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    while (!done.get()) {
+                        CameraState state = mCamera.getState();
+                        if (state.isOpened() ? state.getPreviewSize() == null || state.getCaptureSize() == null
+                                : state.getPreviewSize() != null) {
+                            torn.incrementAndGet();
+                        }
+                        reads.incrementAndGet();
+                    }
+                }
+            });
+            readers[i].start();
+        }
+
+        for (int i = 0; i < 100; i++) {
+            mCamera.start();
+            mCamera.setDisplayOrientation(90 * (i % 4));
+            mCamera.stop();
+        }
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertTrue(reads.get() > 0);
+        assertEquals(0, torn.get());
+        assertFalse(mCamera.getState().isOpened());
+    }
+
+    @Test
+    public void stopSettlesEveryCapture() throws Exception {
+        List<PendingCapture> pendings = new ArrayList<>();
+        int id = 0;
+        for (int i = 0; i < 30; i++) {
+            mCamera.start();
+            for (int method : new int[] {METHOD_STANDARD, METHOD_STILL, METHOD_STILL}) {
+                PendingCapture pending = new PendingCapture(++id, DIRECT);
+                Capture capture = new Capture(id, CameraMetrics.NONE, COMPLETING);
+                capture.setMethod(method);
+                capture.setPending(pending);
+                mCamera.captureImage(capture);
+                pendings.add(pending);
+            }
+            if (i % 3 == 0) {
+                // Give some captures the chance to finish before the camera goes away.
+                Thread.sleep(50);
+            }
+            mCamera.stop();
+
+            for (PendingCapture pending : pendings) {
+                assertTrue("Capture " + pending.getCaptureId() + " still pending after stop", pending.isDone());
+            }
+        }
+
+        for (PendingCapture pending : pendings) {
+            try {
+                pending.get();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+        }
+    }
+
+    @Test
+    public void captureAfterStopFails() throws Exception {
+        mCamera.start();
+        mCamera.stop();
+
+        PendingCapture pending = new PendingCapture(1, DIRECT);
+        Capture capture = new Capture(1, CameraMetrics.NONE, COMPLETING);
+        capture.setPending(pending);
+        mCamera.captureImage(capture);
+
+        assertTrue(pending.isDone());
+        try {
+            pending.get();
+            throw new AssertionError("Capture after stop completed");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+}
@@ -0,0 +1,112 @@
+package com.flurgle.camerakit;
+
+import android.content.Context;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static com.flurgle.camerakit.CameraKit.Constants.FACING_BACK;
+import static com.flurgle.camerakit.CameraKit.Constants.FACING_FRONT;
+import static com.flurgle.camerakit.CameraKit.Constants.FLASH_ON;
+import static com.flurgle.camerakit.CameraKit.Constants.FOCUS_TAP_WITH_MARKER;
+import static com.flurgle.camerakit.CameraKit.Constants.METHOD_STILL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 25)
+public class CameraViewTest {
+
+    @Test
+    public void constructionBuildsNothing() {
+        CameraView view = new CameraView(RuntimeEnvironment.application);
+
+        assertEquals(0, view.getChildCount());
+        assertNull(view.getPreviewSize());
+        assertNull(view.getCamera());
+    }
+
+    @Test
+    public void settersOnlyRecordUntilStart() {
+        CameraView view = new CameraView(RuntimeEnvironment.application);
+        view.setFacing(FACING_FRONT);
+        view.setFlash(FLASH_ON);
+        view.setFocus(FOCUS_TAP_WITH_MARKER);
+        view.setMethod(METHOD_STILL);
+        view.setFrameProcessor(new FrameProcessor() {
+            @Override
+            public void process(Frame frame) {
+            }
+        });
+        view.setCameraListener(new CameraListener() {
+        });
+        view.stop();
+
+        assertEquals(0, view.getChildCount());
+        assertNull(view.getPreviewSize());
+    }
+
+    @Test
+    public void constructionIsCheaperThanBuildingTheBackend() {
+        Context context = RuntimeEnvironment.application;
+        for (int i = 0; i < 20; i++) {
+            new CameraView(context);
+            buildEagerly(context);
+        }
+
+        int runs = 200;
+        long lazy = Long.MAX_VALUE;
+        long eager = Long.MAX_VALUE;
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < runs; i++) {
+                new CameraView(context);
+            }
+            lazy = Math.min(lazy, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (int i = 0; i < runs; i++) {
+                buildEagerly(context);
+            }
+            eager = Math.min(eager, System.nanoTime() - start);
+        }
+
+        assertTrue("lazy " + lazy / runs + " ns vs eager " + eager / runs + " ns per view",
+                lazy < eager);
+    }
+
+    /**
+     * Builds a view and then does what the constructor used to: create the backend and the
+     * orientation detector, and resolve the facing on its own thread. The real preview needs the
+     * library's layouts, which aren't available here, so a fake stands in; inflating the real one
+     * would only make this baseline slower.
+     */
+    private static CameraView buildEagerly(Context context) {
+        CameraView view = new CameraView(context);
+        final Camera1 camera = new Camera1(new CameraListener() {
+        }, new FakePreview());
+        new DisplayOrientationDetector(context) {
+            @Override
+            public void onDisplayOrientationChanged(int displayOrientation) {
+            }
+        };
+        Thread facing = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                camera.setFacing(FACING_BACK);
+            }
+        });
+        facing.start();
+        try {
+            facing.join();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        return view;
+    }
+
+}
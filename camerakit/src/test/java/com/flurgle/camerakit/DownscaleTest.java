@@ -0,0 +1,53 @@
+package com.flurgle.camerakit;
+
+import android.graphics.Rect;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 25)
+public class DownscaleTest {
+
+    @Test
+    public void halvingAveragesEachBlock() {
+        int width = 4;
+        int height = 4;
+        byte[] nv21 = new byte[width * height * 3 / 2];
+        for (int i = 0; i < width * height; i++) {
+            nv21[i] = (byte) (i * 10);
+        }
+
+        byte[] out = Downscale.nv21(nv21, width, height, new Rect(0, 0, width, height), 2, 2);
+        // Top left block: 0, 10, 40, 50.
+        assertEquals(25, out[0] & 0xFF);
+        // Bottom right block: 100, 110, 140, 150.
+        assertEquals(125, out[3] & 0xFF);
+    }
+
+    @Test
+    public void reusedScratchMatchesFreshScratch() {
+        int width = 64;
+        int height = 48;
+        byte[] nv21 = new byte[width * height * 3 / 2];
+        new Random(1).nextBytes(nv21);
+
+        int outWidth = 20;
+        int outHeight = 14;
+        byte[] out = new byte[outWidth * outHeight * 3 / 2];
+        int[] scratch = new int[Downscale.scratchSize(outWidth)];
+        Rect[] crops = {new Rect(0, 0, width, height), new Rect(10, 6, 50, 40), new Rect(2, 2, 30, 24)};
+        for (Rect crop : crops) {
+            Downscale.nv21(nv21, width, height, crop, outWidth, outHeight, out, scratch);
+            assertArrayEquals(crop.toString(), Downscale.nv21(nv21, width, height, crop, outWidth, outHeight), out);
+        }
+    }
+
+}
@@ -0,0 +1,110 @@
+package com.flurgle.camerakit;
+
+import org.junit.Test;
+
+import static com.flurgle.camerakit.ExifOrientation.ORIENTATION_FLIP_HORIZONTAL;
+import static com.flurgle.camerakit.ExifOrientation.ORIENTATION_FLIP_VERTICAL;
+import static com.flurgle.camerakit.ExifOrientation.ORIENTATION_NORMAL;
+import static com.flurgle.camerakit.ExifOrientation.ORIENTATION_ROTATE_180;
+import static com.flurgle.camerakit.ExifOrientation.ORIENTATION_ROTATE_270;
+import static com.flurgle.camerakit.ExifOrientation.ORIENTATION_ROTATE_90;
+import static com.flurgle.camerakit.ExifOrientation.ORIENTATION_TRANSPOSE;
+import static com.flurgle.camerakit.ExifOrientation.ORIENTATION_TRANSVERSE;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class ExifOrientationTest {
+
+    @Test
+    public void rotationAndMirrorMapToTags() {
+        assertEquals(ORIENTATION_NORMAL, ExifOrientation.fromRotation(0, false));
+        assertEquals(ORIENTATION_ROTATE_90, ExifOrientation.fromRotation(90, false));
+        assertEquals(ORIENTATION_ROTATE_180, ExifOrientation.fromRotation(180, false));
+        assertEquals(ORIENTATION_ROTATE_270, ExifOrientation.fromRotation(270, false));
+        assertEquals(ORIENTATION_ROTATE_270, ExifOrientation.fromRotation(-90, false));
+        assertEquals(ORIENTATION_FLIP_HORIZONTAL, ExifOrientation.fromRotation(0, true));
+        assertEquals(ORIENTATION_TRANSPOSE, ExifOrientation.fromRotation(90, true));
+        assertEquals(ORIENTATION_FLIP_VERTICAL, ExifOrientation.fromRotation(180, true));
+        assertEquals(ORIENTATION_TRANSVERSE, ExifOrientation.fromRotation(270, true));
+    }
+
+    @Test
+    public void writtenOrientationReadsBack() {
+        byte[] jpeg = FakeCameraHardware.createJpeg(new Size(640, 480));
+        for (int rotation = 0; rotation < 360; rotation += 90) {
+            for (int mirror = 0; mirror < 2; mirror++) {
+                byte[] tagged = ExifOrientation.write(jpeg, rotation, mirror == 1);
+                assertEquals(ExifOrientation.fromRotation(rotation, mirror == 1), ExifOrientation.read(tagged));
+            }
+        }
+    }
+
+    @Test
+    public void writtenSegmentHasExifLayout() {
+        byte[] tagged = ExifOrientation.write(FakeCameraHardware.createJpeg(new Size(640, 480)), 90, false);
+        byte[] expected = {
+                (byte) 0xFF, (byte) 0xD8,
+                (byte) 0xFF, (byte) 0xE1, 0, 34,
+                'E', 'x', 'i', 'f', 0, 0,
+                'M', 'M', 0, 42, 0, 0, 0, 8,
+                0, 1,
+                0x01, 0x12, 0, 3, 0, 0, 0, 1, 0, 6, 0, 0,
+                0, 0, 0, 0
+        };
+        byte[] actual = new byte[expected.length];
+        System.arraycopy(tagged, 0, actual, 0, expected.length);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void existingExifIsReplacedAndPayloadKept() {
+        byte[] jpeg = FakeCameraHardware.createJpeg(new Size(640, 480));
+        byte[] once = ExifOrientation.write(jpeg, 90, false);
+        byte[] twice = ExifOrientation.write(once, 180, false);
+
+        assertEquals(once.length, twice.length);
+        assertEquals(ORIENTATION_ROTATE_180, ExifOrientation.read(twice));
+
+        // Everything after the Exif segment is the original stream after SOI.
+        int tail = jpeg.length - 2;
+        byte[] expected = new byte[tail];
+        byte[] actual = new byte[tail];
+        System.arraycopy(jpeg, 2, expected, 0, tail);
+        System.arraycopy(twice, twice.length - tail, actual, 0, tail);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void orientationTagIsCopiedToAnotherJpeg() {
+        byte[] source = ExifOrientation.write(FakeCameraHardware.createJpeg(new Size(640, 480)), 270, true);
+        byte[] encoded = FakeCameraHardware.createJpeg(new Size(320, 240));
+        byte[] tagged = ExifOrientation.write(encoded, ExifOrientation.read(source));
+        assertEquals(ORIENTATION_TRANSVERSE, ExifOrientation.read(tagged));
+    }
+
+    @Test
+    public void missingExifReadsAsNormal() {
+        assertEquals(ORIENTATION_NORMAL, ExifOrientation.read(FakeCameraHardware.createJpeg(new Size(640, 480))));
+    }
+
+    @Test
+    public void littleEndianExifIsRead() {
+        byte[] jpeg = {
+                (byte) 0xFF, (byte) 0xD8,
+                (byte) 0xFF, (byte) 0xE1, 0, 34,
+                'E', 'x', 'i', 'f', 0, 0,
+                'I', 'I', 42, 0, 8, 0, 0, 0,
+                1, 0,
+                0x12, 0x01, 3, 0, 1, 0, 0, 0, 6, 0, 0, 0,
+                0, 0, 0, 0,
+                (byte) 0xFF, (byte) 0xD9
+        };
+        assertEquals(ORIENTATION_ROTATE_90, ExifOrientation.read(jpeg));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonJpeg() {
+        ExifOrientation.write(new byte[]{1, 2, 3, 4}, 90, false);
+    }
+
+}
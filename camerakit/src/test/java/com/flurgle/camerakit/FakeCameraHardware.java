@@ -0,0 +1,405 @@
+package com.flurgle.camerakit;
+
+import android.graphics.ImageFormat;
+import android.graphics.SurfaceTexture;
+import android.hardware.Camera;
+import android.view.SurfaceHolder;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link CameraHardware} that never touches a device. Preview frames are synthetic NV21
+ * buffers produced at a fixed rate, and open and shutter latencies are simulated, so the
+ * capture pipeline can be driven deterministically from a plain JVM or Robolectric.
+ */
+@SuppressWarnings("deprecation")
+class FakeCameraHardware implements CameraHardware {
+
+    private final Size mPreviewSize;
+    private final Size mPictureSize;
+    private final int mFramesPerSecond;
+    private final long mOpenLatencyMillis;
+    private final long mShutterLatencyMillis;
+
+    private final ScheduledExecutorService mExecutor;
+
+    private int mCameraId = -1;
+    private String mFocusMode = Camera.Parameters.FOCUS_MODE_AUTO;
+    private boolean mFocusAreaSet;
+
+    private ScheduledFuture<?> mPreviewFrames;
+    private PreviewCallback mOneShotCallback;
+    private PreviewCallback mBufferCallback;
+    private final ArrayDeque<byte[]> mCallbackBuffers = new ArrayDeque<>();
+    private long mDroppedFrames;
+    private long mFrameCount;
+    private int mEnumerations;
+
+    FakeCameraHardware() {
+        this(new Size(1280, 720), new Size(1920, 1080), 30, 0, 0);
+    }
+
+    FakeCameraHardware(Size previewSize, Size pictureSize, int framesPerSecond, long openLatencyMillis, long shutterLatencyMillis) {
+        mPreviewSize = previewSize;
+        mPictureSize = pictureSize;
+        mFramesPerSecond = framesPerSecond;
+        mOpenLatencyMillis = openLatencyMillis;
+        mShutterLatencyMillis = shutterLatencyMillis;
+        mExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "FakeCameraHardware");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    long getFrameCount() {
+        return mFrameCount;
+    }
+
+    int getEnumerationCount() {
+        return mEnumerations;
+    }
+
+    boolean isFocusAreaSet() {
+        return mFocusAreaSet;
+    }
+
+    void shutdown() {
+        mExecutor.shutdownNow();
+    }
+
+    @Override
+    public int getNumberOfCameras() {
+        mEnumerations++;
+        return 2;
+    }
+
+    @Override
+    public int getFacing(int cameraId) {
+        return cameraId == 0 ? Camera.CameraInfo.CAMERA_FACING_BACK : Camera.CameraInfo.CAMERA_FACING_FRONT;
+    }
+
+    @Override
+    public int getOrientation(int cameraId) {
+        return cameraId == 0 ? 90 : 270;
+    }
+
+    @Override
+    public void open(int cameraId) {
+        simulateLatency(mOpenLatencyMillis);
+        mCameraId = cameraId;
+    }
+
+    @Override
+    public synchronized boolean adopt(CameraHardware other) {
+        if (isOpened() || !(other instanceof FakeCameraHardware) || !other.isOpened()) {
+            return false;
+        }
+
+        FakeCameraHardware source = (FakeCameraHardware) other;
+        mCameraId = source.mCameraId;
+        mFocusMode = source.mFocusMode;
+        source.release();
+        return true;
+    }
+
+    @Override
+    public synchronized void release() {
+        stopPreview();
+        mCameraId = -1;
+    }
+
+    @Override
+    public boolean isOpened() {
+        return mCameraId != -1;
+    }
+
+    @Override
+    public Camera getCamera() {
+        return null;
+    }
+
+    @Override
+    public void loadParameters() {
+
+    }
+
+    @Override
+    public void commitParameters() {
+
+    }
+
+    @Override
+    public List<Size> getSupportedPreviewSizes() {
+        return Collections.singletonList(mPreviewSize);
+    }
+
+    @Override
+    public List<Size> getSupportedPictureSizes() {
+        return Collections.singletonList(mPictureSize);
+    }
+
+    @Override
+    public List<String> getSupportedFocusModes() {
+        return Arrays.asList(
+                Camera.Parameters.FOCUS_MODE_AUTO,
+                Camera.Parameters.FOCUS_MODE_CONTINUOUS_PICTURE,
+                Camera.Parameters.FOCUS_MODE_FIXED
+        );
+    }
+
+    @Override
+    public List<String> getSupportedFlashModes() {
+        return Arrays.asList(
+                Camera.Parameters.FLASH_MODE_OFF,
+                Camera.Parameters.FLASH_MODE_ON,
+                Camera.Parameters.FLASH_MODE_AUTO
+        );
+    }
+
+    @Override
+    public int getMaxNumMeteringAreas() {
+        return 1;
+    }
+
+    @Override
+    public Size getPreviewSize() {
+        return mPreviewSize;
+    }
+
+    @Override
+    public int getPreviewFormat() {
+        return ImageFormat.NV21;
+    }
+
+    @Override
+    public void setPreviewSize(int width, int height) {
+
+    }
+
+    @Override
+    public void setPreviewFormat(int format) {
+
+    }
+
+    @Override
+    public void setPictureSize(int width, int height) {
+
+    }
+
+    @Override
+    public void setRotation(int rotation) {
+
+    }
+
+    @Override
+    public void setFocusMode(String focusMode) {
+        mFocusMode = focusMode;
+    }
+
+    @Override
+    public String getFocusMode() {
+        return mFocusMode;
+    }
+
+    @Override
+    public void setFlashMode(String flashMode) {
+
+    }
+
+    @Override
+    public void setFocusArea(int left, int top, int right, int bottom, int weight) {
+        mFocusAreaSet = true;
+    }
+
+    @Override
+    public void clearFocusArea() {
+        mFocusAreaSet = false;
+    }
+
+    @Override
+    public void setDisplayOrientation(int degrees) {
+
+    }
+
+    @Override
+    public void setPreviewTexture(SurfaceTexture surfaceTexture) {
+
+    }
+
+    @Override
+    public void setPreviewDisplay(SurfaceHolder surfaceHolder) {
+
+    }
+
+    @Override
+    public synchronized void startPreview() {
+        if (mPreviewFrames != null || mCameraId == -1) {
+            return;
+        }
+
+        mPreviewFrames = mExecutor.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                deliverPreviewFrame();
+            }
+        }, 0, 1000000L / Math.max(1, mFramesPerSecond), TimeUnit.MICROSECONDS);
+    }
+
+    @Override
+    public synchronized void stopPreview() {
+        if (mPreviewFrames != null) {
+            mPreviewFrames.cancel(false);
+            mPreviewFrames = null;
+        }
+    }
+
+    @Override
+    public synchronized void takePicture(final ShutterCallback shutter, final PictureCallback postview, final PictureCallback jpeg) {
+        // Like the framework, a picture needs a running preview, so a second one can't be taken
+        // until the first has been delivered and the preview restarted.
+        if (mPreviewFrames == null) {
+            throw new RuntimeException("takePicture failed");
+        }
+        stopPreview();
+        mExecutor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (shutter != null) {
+                    shutter.onShutter();
+                }
+                if (postview != null) {
+                    byte[] frame = new byte[mPreviewSize.getWidth() * mPreviewSize.getHeight() * 3 / 2];
+                    fillFrame(frame, mPreviewSize.getWidth(), mPreviewSize.getHeight(), 0);
+                    postview.onPictureTaken(frame);
+                }
+                jpeg.onPictureTaken(createJpeg(mPictureSize));
+            }
+        }, mShutterLatencyMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void setOneShotPreviewCallback(PreviewCallback callback) {
+        // Like the framework, only one kind of preview callback is installed at a time.
+        mOneShotCallback = callback;
+        mBufferCallback = null;
+    }
+
+    @Override
+    public synchronized void setPreviewCallbackWithBuffer(PreviewCallback callback) {
+        mBufferCallback = callback;
+        mOneShotCallback = null;
+        if (callback == null) {
+            mCallbackBuffers.clear();
+        }
+    }
+
+    @Override
+    public synchronized void addCallbackBuffer(byte[] buffer) {
+        mCallbackBuffers.add(buffer);
+    }
+
+    synchronized long getDroppedFrameCount() {
+        return mDroppedFrames;
+    }
+
+    @Override
+    public void autoFocus(final AutoFocusCallback callback) {
+        mExecutor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                callback.onAutoFocus(true);
+            }
+        }, mShutterLatencyMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void cancelAutoFocus() {
+
+    }
+
+    private void deliverPreviewFrame() {
+        PreviewCallback oneShot;
+        PreviewCallback bufferCallback;
+        byte[] buffer = null;
+        synchronized (this) {
+            if (mPreviewFrames == null) {
+                return;
+            }
+            oneShot = mOneShotCallback;
+            mOneShotCallback = null;
+            bufferCallback = mBufferCallback;
+            if (bufferCallback != null) {
+                buffer = mCallbackBuffers.poll();
+                if (buffer == null) {
+                    mDroppedFrames++;
+                }
+            }
+            mFrameCount++;
+        }
+
+        if (oneShot != null) {
+            byte[] frame = new byte[mPreviewSize.getWidth() * mPreviewSize.getHeight() * 3 / 2];
+            fillFrame(frame, mPreviewSize.getWidth(), mPreviewSize.getHeight(), mFrameCount);
+            oneShot.onPreviewFrame(frame);
+        }
+
+        if (buffer != null) {
+            fillFrame(buffer, mPreviewSize.getWidth(), mPreviewSize.getHeight(), mFrameCount);
+            bufferCallback.onPreviewFrame(buffer);
+        }
+    }
+
+    // A diagonal luma gradient that shifts by one step per frame over neutral chroma.
+    static void fillFrame(byte[] nv21, int width, int height, long frameIndex) {
+        int offset = (int) (frameIndex & 0xff);
+        for (int y = 0; y < height; y++) {
+            int row = y * width;
+            for (int x = 0; x < width; x++) {
+                nv21[row + x] = (byte) ((x + y + offset) & 0xff);
+            }
+        }
+        Arrays.fill(nv21, width * height, width * height * 3 / 2, (byte) 128);
+    }
+
+    // Marker-valid JPEG framing (SOI, a comment segment and EOI) sized like a real capture.
+    // It is not decodable, but it exercises every byte-level path that doesn't need pixels.
+    static byte[] createJpeg(Size size) {
+        int payload = Math.min(65533, Math.max(16, size.getWidth() * size.getHeight() / 64));
+        byte[] jpeg = new byte[2 + 4 + payload + 2];
+        jpeg[0] = (byte) 0xFF;
+        jpeg[1] = (byte) 0xD8;
+        jpeg[2] = (byte) 0xFF;
+        jpeg[3] = (byte) 0xFE;
+        jpeg[4] = (byte) ((payload + 2) >> 8);
+        jpeg[5] = (byte) (payload + 2);
+        jpeg[jpeg.length - 2] = (byte) 0xFF;
+        jpeg[jpeg.length - 1] = (byte) 0xD9;
+        return jpeg;
+    }
+
+    private static void simulateLatency(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.flurgle.camerakit;
+
+class FakeCameraImpl extends Camera1 {
+
+    private final FakeCameraHardware mHardware;
+
+    FakeCameraImpl(CameraListener callback, PreviewImpl preview) {
+        this(callback, preview, new FakeCameraHardware());
+    }
+
+    FakeCameraImpl(CameraListener callback, PreviewImpl preview, FakeCameraHardware hardware) {
+        super(callback, preview, hardware);
+        mHardware = hardware;
+    }
+
+    FakeCameraHardware getHardware() {
+        return mHardware;
+    }
+
+}
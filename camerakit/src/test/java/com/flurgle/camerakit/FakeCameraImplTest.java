@@ -0,0 +1,236 @@
+package com.flurgle.camerakit;
+
+import android.graphics.Bitmap;
+import android.graphics.YuvImage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.flurgle.camerakit.CameraKit.Constants.FACING_FRONT;
+import static com.flurgle.camerakit.CameraKit.Constants.METHOD_STANDARD;
+import static com.flurgle.camerakit.CameraKit.Constants.METHOD_STILL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 25)
+public class FakeCameraImplTest {
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private FakePreview mPreview;
+    private FakeCameraHardware mHardware;
+    private FakeCameraImpl mCamera;
+
+    @Before
+    public void setUp() {
+        mPreview = new FakePreview();
+        mHardware = new FakeCameraHardware();
+        mCamera = new FakeCameraImpl(new CameraListener() {
+        }, mPreview, mHardware);
+    }
+
+    @After
+    public void tearDown() {
+        mCamera.stop();
+        mHardware.shutdown();
+    }
+
+    @Test
+    public void startOpensCameraAndStreamsFrames() throws Exception {
+        final CountDownLatch frames = new CountDownLatch(3);
+        mCamera.setFrameProcessor(new FrameProcessor() {
+            @Override
+            public void process(Frame frame) {
+                frames.countDown();
+            }
+        });
+
+        mCamera.start();
+        mPreview.simulateSurfaceAvailable(720, 1280);
+
+        assertTrue(mCamera.isCameraOpened());
+        assertTrue(frames.await(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void standardCaptureDeliversJpeg() throws Exception {
+        mCamera.start();
+        mPreview.simulateSurfaceAvailable(720, 1280);
+
+        RecordingCallback callback = new RecordingCallback();
+        Capture capture = new Capture(1, CameraMetrics.NONE, callback);
+        capture.setMethod(METHOD_STANDARD);
+        mCamera.captureImage(capture);
+
+        assertTrue(callback.mDone.await(2, TimeUnit.SECONDS));
+        byte[] jpeg = callback.mJpeg.get();
+        assertNotNull(jpeg);
+        assertEquals((byte) 0xFF, jpeg[0]);
+        assertEquals((byte) 0xD8, jpeg[1]);
+    }
+
+    @Test
+    public void stillCaptureDeliversPreviewFrame() throws Exception {
+        mCamera.start();
+        mPreview.simulateSurfaceAvailable(720, 1280);
+
+        RecordingCallback callback = new RecordingCallback();
+        Capture capture = new Capture(1, CameraMetrics.NONE, callback);
+        capture.setMethod(METHOD_STILL);
+        mCamera.captureImage(capture);
+
+        assertTrue(callback.mDone.await(2, TimeUnit.SECONDS));
+        YuvImage yuv = callback.mYuv.get();
+        assertNotNull(yuv);
+        assertEquals(1280 * 720, yuv.getWidth() * yuv.getHeight());
+    }
+
+    @Test
+    public void stillCaptureLeavesRotationToExifWhenAsked() throws Exception {
+        mCamera.start();
+        mPreview.simulateSurfaceAvailable(720, 1280);
+
+        RecordingCallback rotated = new RecordingCallback();
+        Capture rotatedCapture = new Capture(1, CameraMetrics.NONE, rotated);
+        rotatedCapture.setMethod(METHOD_STILL);
+        mCamera.captureImage(rotatedCapture);
+        assertTrue(rotated.mDone.await(2, TimeUnit.SECONDS));
+
+        RecordingCallback tagged = new RecordingCallback();
+        Capture taggedCapture = new Capture(2, CameraMetrics.NONE, tagged);
+        taggedCapture.setMethod(METHOD_STILL);
+        taggedCapture.setExifOrientation(true);
+        mCamera.captureImage(taggedCapture);
+        assertTrue(tagged.mDone.await(2, TimeUnit.SECONDS));
+
+        // The back camera is mounted at 90 degrees, so an upright frame is portrait.
+        assertEquals(0, rotated.mRotation);
+        assertEquals(720, rotated.mYuv.get().getWidth());
+        assertEquals(90, tagged.mRotation);
+        assertEquals(1280, tagged.mYuv.get().getWidth());
+    }
+
+    @Test
+    public void abandonedCaptureFreesTheQueue() throws Exception {
+        // No surface yet, so no preview frames and the first still capture can't finish.
+        mCamera.start();
+
+        RecordingCallback first = new RecordingCallback();
+        PendingCapture firstPending = new PendingCapture(1, DIRECT);
+        Capture firstCapture = new Capture(1, CameraMetrics.NONE, first);
+        firstCapture.setMethod(METHOD_STILL);
+        firstCapture.setPending(firstPending);
+        mCamera.captureImage(firstCapture);
+
+        RecordingCallback second = new RecordingCallback();
+        Capture secondCapture = new Capture(2, CameraMetrics.NONE, second);
+        secondCapture.setMethod(METHOD_STILL);
+        mCamera.captureImage(secondCapture);
+
+        firstPending.cancel(true);
+        mPreview.simulateSurfaceAvailable(720, 1280);
+
+        assertTrue(second.mDone.await(2, TimeUnit.SECONDS));
+        assertEquals(1, first.mDone.getCount());
+    }
+
+    @Test
+    public void cancelledStandardCaptureKeepsCameraUntilItsPicture() throws Exception {
+        FakeCameraHardware hardware = new FakeCameraHardware(new Size(1280, 720), new Size(1920, 1080), 30, 0, 300);
+        FakeCameraImpl camera = new FakeCameraImpl(new CameraListener() {
+        }, mPreview, hardware);
+        try {
+            camera.start();
+            mPreview.simulateSurfaceAvailable(720, 1280);
+
+            RecordingCallback first = new RecordingCallback();
+            PendingCapture firstPending = new PendingCapture(1, DIRECT);
+            Capture firstCapture = new Capture(1, CameraMetrics.NONE, first);
+            firstCapture.setMethod(METHOD_STANDARD);
+            firstCapture.setPending(firstPending);
+            camera.captureImage(firstCapture);
+
+            // The picture is in flight, the camera can't take another one yet.
+            firstPending.cancel(true);
+
+            RecordingCallback second = new RecordingCallback();
+            PendingCapture secondPending = new PendingCapture(2, DIRECT);
+            Capture secondCapture = new Capture(2, CameraMetrics.NONE, second);
+            secondCapture.setMethod(METHOD_STANDARD);
+            secondCapture.setPending(secondPending);
+            camera.captureImage(secondCapture);
+
+            assertTrue(second.mDone.await(2, TimeUnit.SECONDS));
+            assertFalse(secondPending.isDone());
+            assertEquals(1, first.mDone.getCount());
+        } finally {
+            camera.stop();
+            hardware.shutdown();
+        }
+    }
+
+    @Test
+    public void startLooksUpFacingOnce() {
+        mCamera.setFacing(FACING_FRONT);
+        mCamera.start();
+        assertEquals(1, mHardware.getEnumerationCount());
+
+        mCamera.stop();
+        mCamera.start();
+        assertEquals(1, mHardware.getEnumerationCount());
+        assertEquals(1, mCamera.getState().getCameraId());
+    }
+
+    @Test
+    public void stopReleasesCamera() {
+        mCamera.start();
+        mCamera.stop();
+
+        assertFalse(mCamera.isCameraOpened());
+        assertFalse(mHardware.isOpened());
+    }
+
+    private static class RecordingCallback implements Capture.Callback {
+
+        final CountDownLatch mDone = new CountDownLatch(1);
+        final AtomicReference<byte[]> mJpeg = new AtomicReference<>();
+        final AtomicReference<YuvImage> mYuv = new AtomicReference<>();
+        volatile int mRotation = -1;
+
+        @Override
+        public void onThumbnailReady(Capture capture, Bitmap thumbnail) {
+        }
+
+        @Override
+        public void onPictureTaken(Capture capture, byte[] jpeg) {
+            mJpeg.set(jpeg);
+            mDone.countDown();
+        }
+
+        @Override
+        public void onPictureTaken(Capture capture, YuvImage yuv, int rotation, boolean mirrored) {
+            mRotation = rotation;
+            mYuv.set(yuv);
+            mDone.countDown();
+        }
+
+    }
+
+}
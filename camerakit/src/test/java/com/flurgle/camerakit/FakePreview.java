@@ -0,0 +1,77 @@
+package com.flurgle.camerakit;
+
+import android.graphics.SurfaceTexture;
+import android.view.Surface;
+import android.view.View;
+
+/**
+ * A view-less {@link PreviewImpl} whose surface lifecycle is driven by the caller, for use
+ * with {@link FakeCameraImpl}.
+ */
+class FakePreview extends PreviewImpl {
+
+    private boolean mReady;
+
+    void simulateSurfaceAvailable(int width, int height) {
+        mReady = true;
+        setSize(width, height);
+        dispatchSurfaceChanged();
+    }
+
+    void simulateSurfaceDestroyed() {
+        mReady = false;
+        setSize(0, 0);
+        dispatchSurfaceDestroyed();
+    }
+
+    void simulateFrameRendered() {
+        dispatchFrameRendered();
+    }
+
+    @Override
+    Surface getSurface() {
+        return null;
+    }
+
+    @Override
+    View getView() {
+        return null;
+    }
+
+    @Override
+    Class getOutputClass() {
+        return SurfaceTexture.class;
+    }
+
+    @Override
+    void setDisplayOrientation(int displayOrientation) {
+
+    }
+
+    @Override
+    protected void applyTransform(PreviewTransform transform) {
+
+    }
+
+    @Override
+    protected int getContainerWidth() {
+        return getWidth();
+    }
+
+    @Override
+    protected int getContainerHeight() {
+        return getHeight();
+    }
+
+    @Override
+    boolean isReady() {
+        return mReady;
+    }
+
+    @Override
+    void setTruePreviewSize(int width, int height) {
+        mTrueWidth = width;
+        mTrueHeight = height;
+    }
+
+}
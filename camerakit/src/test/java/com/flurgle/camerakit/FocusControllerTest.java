@@ -0,0 +1,65 @@
+package com.flurgle.camerakit;
+
+import android.graphics.Rect;
+import android.view.MotionEvent;
+import android.view.View;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 25)
+public class FocusControllerTest {
+
+    private FakeCameraHardware mHardware;
+    private float mMappedX;
+    private float mMappedY;
+    private FocusController mController;
+
+    @Before
+    public void setUp() {
+        // Focus never finishes during a test, which would reset the focus area behind its back.
+        mHardware = new FakeCameraHardware(new Size(1280, 720), new Size(1920, 1080), 30, 0, 60000);
+        mHardware.open(0);
+        mController = new FocusController(mHardware, new FocusController.AreaMapper() {
+            @Override
+            public void mapFocusArea(float x, float y, Rect out) {
+                mMappedX = x;
+                mMappedY = y;
+                out.set(-100, -100, 100, 100);
+            }
+        }, 1000);
+    }
+
+    @After
+    public void tearDown() {
+        mHardware.shutdown();
+    }
+
+    @Test
+    public void tapsOnOversizedPreviewAreMappedIntoParentSpace() {
+        // A SurfaceView preview centered in a 1080x1920 parent and cropped on the sides.
+        View preview = new View(RuntimeEnvironment.application);
+        preview.layout(-180, 0, 1260, 1920);
+        mController.attach(preview);
+
+        MotionEvent up = MotionEvent.obtain(0, 0, MotionEvent.ACTION_UP, 720, 960, 0);
+        preview.dispatchTouchEvent(up);
+        up.recycle();
+        ShadowLooper.idleMainLooper(FocusController.DEBOUNCE_MILLIS);
+
+        assertEquals(540f, mMappedX, 0.001f);
+        assertEquals(960f, mMappedY, 0.001f);
+        assertTrue(mHardware.isFocusAreaSet());
+    }
+
+}
@@ -0,0 +1,124 @@
+package com.flurgle.camerakit;
+
+import android.graphics.ImageFormat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 25)
+public class FrameDispatcherTest {
+
+    private static final Size PREVIEW_SIZE = new Size(320, 240);
+
+    private FakeCameraHardware mHardware;
+    private FrameDispatcher mDispatcher;
+
+    @Before
+    public void setUp() {
+        mHardware = new FakeCameraHardware(PREVIEW_SIZE, PREVIEW_SIZE, 30, 0, 0);
+        mHardware.open(0);
+        mDispatcher = new FrameDispatcher(mHardware);
+        mDispatcher.setProcessor(new FrameProcessor() {
+            @Override
+            public void process(Frame frame) {
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        mDispatcher.stop();
+        mHardware.release();
+        mHardware.shutdown();
+    }
+
+    @Test
+    public void requestSurvivesStop() throws Exception {
+        CountingCallback request = new CountingCallback();
+        mDispatcher.start(PREVIEW_SIZE, ImageFormat.NV21, 90);
+        mDispatcher.requestFrame(request);
+        mDispatcher.stop();
+
+        mHardware.startPreview();
+        assertTrue(request.mDelivered.await(2, TimeUnit.SECONDS));
+        assertDeliveredOnce(request);
+    }
+
+    @Test
+    public void requestSurvivesStart() throws Exception {
+        CountingCallback request = new CountingCallback();
+        mDispatcher.requestFrame(request);
+        mDispatcher.start(PREVIEW_SIZE, ImageFormat.NV21, 90);
+
+        mHardware.startPreview();
+        assertTrue(request.mDelivered.await(2, TimeUnit.SECONDS));
+        assertDeliveredOnce(request);
+        assertTrue(mDispatcher.isRunning());
+    }
+
+    @Test
+    public void requestSurvivesRestart() throws Exception {
+        CountingCallback request = new CountingCallback();
+        mDispatcher.start(PREVIEW_SIZE, ImageFormat.NV21, 90);
+        mDispatcher.requestFrame(request);
+        mDispatcher.stop();
+        mDispatcher.start(PREVIEW_SIZE, ImageFormat.NV21, 90);
+
+        mHardware.startPreview();
+        assertTrue(request.mDelivered.await(2, TimeUnit.SECONDS));
+        assertDeliveredOnce(request);
+    }
+
+    @Test
+    public void cancelledRequestIsDropped() throws Exception {
+        CountingCallback request = new CountingCallback();
+        mDispatcher.start(PREVIEW_SIZE, ImageFormat.NV21, 90);
+        mDispatcher.requestFrame(request);
+        mDispatcher.stop();
+        mDispatcher.cancelFrameRequest();
+
+        mHardware.startPreview();
+        assertFalse(request.mDelivered.await(300, TimeUnit.MILLISECONDS));
+    }
+
+    private void assertDeliveredOnce(CountingCallback request) throws InterruptedException {
+        // A few more frames give a second delivery the chance to show up.
+        long frames = mHardware.getFrameCount();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (mHardware.getFrameCount() < frames + 3) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Preview stopped producing frames");
+            }
+            Thread.sleep(10);
+        }
+        assertEquals(1, request.mCount.get());
+    }
+
+    private static class CountingCallback implements CameraHardware.PreviewCallback {
+
+        final CountDownLatch mDelivered = new CountDownLatch(1);
+        final AtomicInteger mCount = new AtomicInteger();
+
+        @Override
+        public void onPreviewFrame(byte[] data) {
+            assertEquals(PREVIEW_SIZE.getWidth() * PREVIEW_SIZE.getHeight() * 3 / 2, data.length);
+            mCount.incrementAndGet();
+            mDelivered.countDown();
+        }
+
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.flurgle.camerakit;
+
+import org.junit.Test;
+
+import static com.flurgle.camerakit.CameraKit.Constants.STAGE_ABORTED;
+import static com.flurgle.camerakit.CameraKit.Constants.STAGE_CALLBACK_DISPATCHED;
+import static com.flurgle.camerakit.CameraKit.Constants.STAGE_COMMAND_ENQUEUED;
+import static com.flurgle.camerakit.CameraKit.Constants.STAGE_FRAME_RECEIVED;
+import static org.junit.Assert.assertEquals;
+
+public class HistogramCameraMetricsTest {
+
+    private static final long MILLI = 1000000L;
+
+    @Test
+    public void stagesAreTimedFromThePreviousStage() {
+        HistogramCameraMetrics metrics = new HistogramCameraMetrics();
+        metrics.onCaptureStage(1, STAGE_COMMAND_ENQUEUED, 0, 0);
+        metrics.onCaptureStage(1, STAGE_FRAME_RECEIVED, 10 * MILLI, 100);
+        metrics.onCaptureStage(1, STAGE_CALLBACK_DISPATCHED, 15 * MILLI, 50);
+
+        assertEquals(10 * MILLI, metrics.getMeanNanos(STAGE_FRAME_RECEIVED));
+        assertEquals(5 * MILLI, metrics.getMeanNanos(STAGE_CALLBACK_DISPATCHED));
+        assertEquals(100, metrics.getTotalBytes(STAGE_FRAME_RECEIVED));
+    }
+
+    @Test
+    public void abortedCapturesEndAndFreeTheirSlot() {
+        HistogramCameraMetrics metrics = new HistogramCameraMetrics();
+        // Far more captures than slots, all abandoned half way.
+        for (int id = 0; id < 1000; id++) {
+            metrics.onCaptureStage(id, STAGE_COMMAND_ENQUEUED, id * MILLI, 0);
+            metrics.onCaptureStage(id, STAGE_ABORTED, id * MILLI + MILLI / 2, 0);
+        }
+        assertEquals(1000, metrics.getCount(STAGE_ABORTED));
+        assertEquals(MILLI / 2, metrics.getMeanNanos(STAGE_ABORTED));
+
+        // A late stage for an ended capture has no start to measure from.
+        metrics.onCaptureStage(10, STAGE_FRAME_RECEIVED, 2000 * MILLI, 0);
+        assertEquals(0, metrics.getMeanNanos(STAGE_FRAME_RECEIVED));
+    }
+
+    @Test
+    public void captureReportsNothingAfterItEnds() {
+        final HistogramCameraMetrics metrics = new HistogramCameraMetrics();
+        Capture capture = new Capture(1, metrics, null);
+        capture.mark(STAGE_COMMAND_ENQUEUED, 0);
+        capture.fail(new IllegalStateException("Camera closed"));
+        capture.mark(STAGE_FRAME_RECEIVED, 100);
+        capture.mark(STAGE_CALLBACK_DISPATCHED, 100);
+
+        assertEquals(1, metrics.getCount(STAGE_ABORTED));
+        assertEquals(0, metrics.getCount(STAGE_FRAME_RECEIVED));
+        assertEquals(0, metrics.getCount(STAGE_CALLBACK_DISPATCHED));
+    }
+
+}
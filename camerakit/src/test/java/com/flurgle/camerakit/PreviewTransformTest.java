@@ -0,0 +1,90 @@
+package com.flurgle.camerakit;
+
+import org.junit.Test;
+
+import static com.flurgle.camerakit.PreviewTransform.SCALE_CENTER_CROP;
+import static com.flurgle.camerakit.PreviewTransform.SCALE_FIT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PreviewTransformTest {
+
+    private static final float EPSILON = 0.001f;
+
+    @Test
+    public void matchingAspectNeedsNoScale() {
+        PreviewTransform transform = new PreviewTransform();
+        transform.update(1080, 1920, 720, 1280, SCALE_CENTER_CROP);
+
+        assertEquals(1f, transform.getScaleX(), EPSILON);
+        assertEquals(1f, transform.getScaleY(), EPSILON);
+    }
+
+    @Test
+    public void centerCropFillsViewAndKeepsContentAspect() {
+        PreviewTransform transform = new PreviewTransform();
+        transform.update(1080, 1920, 1080, 1440, SCALE_CENTER_CROP);
+
+        // The buffer starts out stretched to the view; after scaling, the shown content must
+        // cover the view and have the content's aspect ratio.
+        float shownWidth = 1080 * transform.getScaleX();
+        float shownHeight = 1920 * transform.getScaleY();
+        assertTrue(shownWidth >= 1080 - EPSILON);
+        assertTrue(shownHeight >= 1920 - EPSILON);
+        assertEquals(1080f / 1440f, shownWidth / shownHeight, EPSILON);
+    }
+
+    @Test
+    public void fitKeepsContentInsideView() {
+        PreviewTransform transform = new PreviewTransform();
+        transform.update(1080, 1920, 1080, 1440, SCALE_FIT);
+
+        float shownWidth = 1080 * transform.getScaleX();
+        float shownHeight = 1920 * transform.getScaleY();
+        assertTrue(shownWidth <= 1080 + EPSILON);
+        assertTrue(shownHeight <= 1920 + EPSILON);
+        assertEquals(1080f / 1440f, shownWidth / shownHeight, EPSILON);
+    }
+
+    @Test
+    public void scaleIsCenteredOnView() {
+        PreviewTransform transform = new PreviewTransform();
+        transform.update(1000, 2000, 1000, 1000, SCALE_CENTER_CROP);
+
+        // Scaling around the pivot is the same as scaling around the origin and translating.
+        float[] corners = {0, 0, 1000, 2000, 500, 1000};
+        for (int i = 0; i < corners.length; i += 2) {
+            float x = corners[i];
+            float y = corners[i + 1];
+            float pivotX = transform.getScaleX() * (x - transform.getPivotX()) + transform.getPivotX();
+            float pivotY = transform.getScaleY() * (y - transform.getPivotY()) + transform.getPivotY();
+            assertEquals(pivotX, transform.getScaleX() * x + transform.getTranslateX(), EPSILON);
+            assertEquals(pivotY, transform.getScaleY() * y + transform.getTranslateY(), EPSILON);
+        }
+
+        // The view center stays put and the shown content is centered on it.
+        assertEquals(500f, transform.getScaleX() * 500 + transform.getTranslateX(), EPSILON);
+        assertEquals(1000f, transform.getScaleY() * 1000 + transform.getTranslateY(), EPSILON);
+        assertEquals(-500f, transform.getTranslateX(), EPSILON);
+        assertEquals(0f, transform.getTranslateY(), EPSILON);
+    }
+
+    @Test
+    public void unchangedInputsAreNotRecomputed() {
+        PreviewTransform transform = new PreviewTransform();
+        assertTrue(transform.update(1080, 1920, 1280, 720, SCALE_CENTER_CROP));
+        assertFalse(transform.update(1080, 1920, 1280, 720, SCALE_CENTER_CROP));
+        assertTrue(transform.update(1920, 1080, 1280, 720, SCALE_CENTER_CROP));
+    }
+
+    @Test
+    public void emptySizesLeaveIdentity() {
+        PreviewTransform transform = new PreviewTransform();
+        transform.update(0, 0, 1280, 720, SCALE_CENTER_CROP);
+
+        assertEquals(1f, transform.getScaleX(), EPSILON);
+        assertEquals(1f, transform.getScaleY(), EPSILON);
+    }
+
+}
@@ -0,0 +1,154 @@
+package com.flurgle.camerakit;
+
+import android.graphics.ImageFormat;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static com.flurgle.camerakit.Rotation.MIRROR_HORIZONTAL;
+import static com.flurgle.camerakit.Rotation.MIRROR_NONE;
+import static com.flurgle.camerakit.Rotation.MIRROR_VERTICAL;
+import static org.junit.Assert.assertArrayEquals;
+
+public class RotationTest {
+
+    // Not a multiple of 16, so YV12 rows carry padding.
+    private static final int WIDTH = 40;
+    private static final int HEIGHT = 24;
+
+    @Test
+    public void quarterTurnMovesPixelsClockwise() {
+        // 4x2 luma with neutral 2x1 chroma.
+        byte[] nv21 = {
+                1, 2, 3, 4,
+                5, 6, 7, 8,
+                10, 11, 12, 13
+        };
+        byte[] rotated = new Rotation(nv21, 4, 2, 90).getYuv();
+        assertArrayEquals(new byte[] {
+                5, 1,
+                6, 2,
+                7, 3,
+                8, 4,
+                10, 11,
+                12, 13
+        }, rotated);
+    }
+
+    @Test
+    public void nv21FullTurnRoundTrips() {
+        byte[] nv21 = randomNv21(1);
+        for (int rotation = 90; rotation < 360; rotation += 90) {
+            byte[] rotated = new Rotation(nv21, WIDTH, HEIGHT, rotation).getYuv();
+            int width = rotation % 180 == 0 ? WIDTH : HEIGHT;
+            int height = rotation % 180 == 0 ? HEIGHT : WIDTH;
+            byte[] back = new Rotation(rotated, width, height, 360 - rotation).getYuv();
+            assertArrayEquals("rotation " + rotation, nv21, back);
+        }
+    }
+
+    @Test
+    public void nv21FourQuarterTurnsRoundTrip() {
+        byte[] nv21 = randomNv21(2);
+        byte[] frame = nv21;
+        int width = WIDTH;
+        int height = HEIGHT;
+        for (int i = 0; i < 4; i++) {
+            frame = new Rotation(frame, width, height, 90).getYuv();
+            int swap = width;
+            width = height;
+            height = swap;
+        }
+        assertArrayEquals(nv21, frame);
+    }
+
+    @Test
+    public void mirrorTwiceRoundTrips() {
+        byte[] nv21 = randomNv21(3);
+        for (int mirror : new int[] {MIRROR_HORIZONTAL, MIRROR_VERTICAL}) {
+            byte[] once = new Rotation(nv21, WIDTH, HEIGHT, ImageFormat.NV21, 0, mirror).getYuv();
+            byte[] twice = new Rotation(once, WIDTH, HEIGHT, ImageFormat.NV21, 0, mirror).getYuv();
+            assertArrayEquals("mirror " + mirror, nv21, twice);
+        }
+    }
+
+    @Test
+    public void verticalMirrorIsHorizontalMirrorTurnedHalfway() {
+        byte[] nv21 = randomNv21(4);
+        byte[] vertical = new Rotation(nv21, WIDTH, HEIGHT, ImageFormat.NV21, 90, MIRROR_VERTICAL).getYuv();
+        byte[] horizontal = new Rotation(nv21, WIDTH, HEIGHT, ImageFormat.NV21, 270, MIRROR_HORIZONTAL).getYuv();
+        assertArrayEquals(vertical, horizontal);
+    }
+
+    @Test
+    public void yv12MatchesNv21() {
+        byte[] nv21 = randomNv21(5);
+        byte[] yv12 = toYv12(nv21);
+        for (int rotation = 0; rotation < 360; rotation += 90) {
+            assertArrayEquals("rotation " + rotation,
+                    new Rotation(nv21, WIDTH, HEIGHT, ImageFormat.NV21, rotation, MIRROR_HORIZONTAL).getYuv(),
+                    new Rotation(yv12, WIDTH, HEIGHT, ImageFormat.YV12, rotation, MIRROR_HORIZONTAL).getYuv());
+        }
+    }
+
+    @Test
+    public void i420MatchesNv21() {
+        byte[] nv21 = randomNv21(6);
+        byte[] i420 = toI420(nv21);
+        for (int rotation = 0; rotation < 360; rotation += 90) {
+            assertArrayEquals("rotation " + rotation,
+                    new Rotation(nv21, WIDTH, HEIGHT, ImageFormat.NV21, rotation, MIRROR_NONE).getYuv(),
+                    new Rotation(i420, WIDTH, HEIGHT, Rotation.FORMAT_I420, rotation, MIRROR_NONE).getYuv());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsPartialTurns() {
+        new Rotation(randomNv21(7), WIDTH, HEIGHT, 45);
+    }
+
+    private static byte[] randomNv21(long seed) {
+        byte[] nv21 = new byte[WIDTH * HEIGHT * 3 / 2];
+        new Random(seed).nextBytes(nv21);
+        return nv21;
+    }
+
+    private static byte[] toYv12(byte[] nv21) {
+        int yStride = align16(WIDTH);
+        int uvStride = align16(yStride / 2);
+        int chromaWidth = WIDTH / 2;
+        int chromaHeight = HEIGHT / 2;
+        int vOffset = yStride * HEIGHT;
+        int uOffset = vOffset + uvStride * chromaHeight;
+        byte[] yv12 = new byte[uOffset + uvStride * chromaHeight];
+        for (int y = 0; y < HEIGHT; y++) {
+            System.arraycopy(nv21, y * WIDTH, yv12, y * yStride, WIDTH);
+        }
+        for (int y = 0; y < chromaHeight; y++) {
+            for (int x = 0; x < chromaWidth; x++) {
+                int uv = WIDTH * HEIGHT + y * WIDTH + 2 * x;
+                yv12[vOffset + y * uvStride + x] = nv21[uv];
+                yv12[uOffset + y * uvStride + x] = nv21[uv + 1];
+            }
+        }
+        return yv12;
+    }
+
+    private static byte[] toI420(byte[] nv21) {
+        int frameSize = WIDTH * HEIGHT;
+        int chromaSize = frameSize / 4;
+        byte[] i420 = new byte[frameSize + 2 * chromaSize];
+        System.arraycopy(nv21, 0, i420, 0, frameSize);
+        for (int i = 0; i < chromaSize; i++) {
+            i420[frameSize + i] = nv21[frameSize + 2 * i + 1];
+            i420[frameSize + chromaSize + i] = nv21[frameSize + 2 * i];
+        }
+        return i420;
+    }
+
+    private static int align16(int value) {
+        return (value + 15) & ~15;
+    }
+
+}
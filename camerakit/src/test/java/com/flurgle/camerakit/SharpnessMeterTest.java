@@ -0,0 +1,115 @@
+package com.flurgle.camerakit;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SharpnessMeterTest {
+
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 240;
+
+    @Test
+    public void flatFrameHasNoSharpness() {
+        byte[] luma = new byte[WIDTH * HEIGHT];
+        Arrays.fill(luma, (byte) 128);
+        SharpnessMeter meter = new SharpnessMeter();
+        meter.measure(luma, WIDTH, HEIGHT);
+        assertEquals(0f, meter.getSharpness(), 0f);
+    }
+
+    @Test
+    public void blurLowersSharpness() {
+        byte[] sharp = checkerboard(WIDTH, HEIGHT, 3);
+        byte[] blurred = blur(sharp, WIDTH, HEIGHT);
+
+        SharpnessMeter meter = new SharpnessMeter();
+        meter.measure(sharp, WIDTH, HEIGHT);
+        float sharpness = meter.getSharpness();
+        meter.measure(blurred, WIDTH, HEIGHT);
+        assertTrue(sharpness > 2 * meter.getSharpness());
+    }
+
+    @Test
+    public void motionComparesWithPreviousFrame() {
+        byte[] luma = checkerboard(WIDTH, HEIGHT, 3);
+        SharpnessMeter meter = new SharpnessMeter();
+
+        meter.measure(luma, WIDTH, HEIGHT);
+        assertTrue(Float.isNaN(meter.getMotion()));
+
+        meter.measure(luma, WIDTH, HEIGHT);
+        assertEquals(0f, meter.getMotion(), 0f);
+
+        byte[] brighter = new byte[luma.length];
+        for (int i = 0; i < luma.length; i++) {
+            brighter[i] = (byte) ((luma[i] & 0xFF) + 10);
+        }
+        meter.measure(brighter, WIDTH, HEIGHT);
+        assertEquals(10f, meter.getMotion(), 0f);
+        // A uniform brightness change leaves the Laplacian alone.
+        float sharpness = meter.getSharpness();
+        meter.measure(luma, WIDTH, HEIGHT);
+        assertEquals(sharpness, meter.getSharpness(), 0f);
+    }
+
+    @Test
+    public void sizeChangeRestartsMotion() {
+        SharpnessMeter meter = new SharpnessMeter();
+        meter.measure(checkerboard(WIDTH, HEIGHT, 3), WIDTH, HEIGHT);
+        meter.measure(checkerboard(WIDTH / 2, HEIGHT / 2, 3), WIDTH / 2, HEIGHT / 2);
+        assertTrue(Float.isNaN(meter.getMotion()));
+    }
+
+    @Test
+    public void scoresA1080pFrameInUnderTwoMilliseconds() {
+        int width = 1920;
+        int height = 1080;
+        byte[] luma = checkerboard(width, height, 5);
+        SharpnessMeter meter = new SharpnessMeter();
+
+        for (int i = 0; i < 20; i++) {
+            meter.measure(luma, width, height);
+        }
+        // Fastest of many frames, which is the least disturbed by other work on the machine.
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 100; i++) {
+            long start = System.nanoTime();
+            meter.measure(luma, width, height);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        assertTrue("1080p frame took " + best / 1000 + " us", best < 2000000L);
+    }
+
+    private static byte[] checkerboard(int width, int height, int cell) {
+        byte[] luma = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                luma[y * width + x] = (byte) (((x / cell + y / cell) & 1) == 0 ? 40 : 200);
+            }
+        }
+        return luma;
+    }
+
+    // 3x3 box blur, edges left as they are.
+    private static byte[] blur(byte[] luma, int width, int height) {
+        byte[] out = luma.clone();
+        for (int y = 1; y < height - 1; y++) {
+            for (int x = 1; x < width - 1; x++) {
+                int sum = 0;
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dx = -1; dx <= 1; dx++) {
+                        sum += luma[(y + dy) * width + x + dx] & 0xFF;
+                    }
+                }
+                out[y * width + x] = (byte) (sum / 9);
+            }
+        }
+        return out;
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.flurgle.camerakit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.flurgle.camerakit.CameraKit.Constants.PHASE_TIME_TO_ATTACH;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 25)
+public class SurfaceBindingTest {
+
+    private final List<Long> mTimeToAttach = new ArrayList<>();
+    private int mBindCount;
+    private boolean mFailBind;
+    private SurfaceBinding mBinding;
+
+    @Before
+    public void setUp() {
+        PhaseTracer tracer = new PhaseTracer();
+        tracer.setMetrics(new CameraMetrics() {
+            @Override
+            public void onOpenPhase(int phase, long durationNanos) {
+                if (phase == PHASE_TIME_TO_ATTACH) {
+                    mTimeToAttach.add(durationNanos);
+                }
+            }
+        });
+        mBinding = new SurfaceBinding(new SurfaceBinding.Binder() {
+            @Override
+            public void bind() throws Exception {
+                if (mFailBind) {
+                    throw new Exception("surface not valid");
+                }
+                mBindCount++;
+            }
+        }, tracer);
+    }
+
+    @Test
+    public void bindsOnlyOnceBothSidesAreReady() {
+        mBinding.setSurfaceReady(true);
+        assertFalse(mBinding.isBound());
+
+        mBinding.setCameraReady(true);
+        assertTrue(mBinding.isBound());
+        assertEquals(1, mBindCount);
+
+        // Further surface changes while bound don't bind again.
+        mBinding.setSurfaceReady(true);
+        assertEquals(1, mBindCount);
+    }
+
+    @Test
+    public void rebindsWhenSurfaceComesBack() {
+        mBinding.setCameraReady(true);
+        mBinding.setSurfaceReady(true);
+        mBinding.setSurfaceReady(false);
+        assertFalse(mBinding.isBound());
+
+        mBinding.setSurfaceReady(true);
+        assertTrue(mBinding.isBound());
+        assertEquals(2, mBindCount);
+    }
+
+    @Test
+    public void failedBindIsRetriedOnNextEvent() {
+        mFailBind = true;
+        mBinding.setCameraReady(true);
+        mBinding.setSurfaceReady(true);
+        assertFalse(mBinding.isBound());
+
+        mFailBind = false;
+        mBinding.setSurfaceReady(true);
+        assertTrue(mBinding.isBound());
+        assertEquals(1, mTimeToAttach.size());
+    }
+
+    @Test
+    public void timeToAttachRestartsAfterSurfaceIsRecreated() throws Exception {
+        mBinding.setCameraReady(true);
+        mBinding.setSurfaceReady(true);
+        mBinding.setSurfaceReady(false);
+
+        // The camera stays ready while the surface is gone; that gap is not attach latency.
+        Thread.sleep(100);
+        mBinding.setSurfaceReady(true);
+
+        assertEquals(2, mTimeToAttach.size());
+        assertTrue(mTimeToAttach.get(1) < TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+}
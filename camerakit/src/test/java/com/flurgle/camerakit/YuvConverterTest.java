@@ -0,0 +1,130 @@
+package com.flurgle.camerakit;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class YuvConverterTest {
+
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+
+    @Test
+    public void kernelMatchesFloatReference() {
+        byte[] nv21 = randomFrame(WIDTH, HEIGHT, 1);
+        int[] argb = new int[WIDTH * HEIGHT];
+        YuvConverter.convertRows(nv21, WIDTH, HEIGHT, 0, 0, WIDTH, 0, HEIGHT, argb);
+
+        int maxError = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int expected = reference(nv21, WIDTH, HEIGHT, x, y);
+                int actual = argb[y * WIDTH + x];
+                assertTrue((actual >>> 24) == 0xFF);
+                maxError = Math.max(maxError, channelError(expected, actual));
+            }
+        }
+        assertTrue("max channel error " + maxError, maxError <= 1);
+    }
+
+    @Test
+    public void cropMatchesFullFrame() {
+        byte[] nv21 = randomFrame(WIDTH, HEIGHT, 2);
+        int[] full = new int[WIDTH * HEIGHT];
+        YuvConverter.convertRows(nv21, WIDTH, HEIGHT, 0, 0, WIDTH, 0, HEIGHT, full);
+
+        int left = 100;
+        int top = 60;
+        int outWidth = 320;
+        int outHeight = 240;
+        int[] crop = new int[outWidth * outHeight];
+        YuvConverter.convertRows(nv21, WIDTH, HEIGHT, left, top, outWidth, 0, outHeight, crop);
+
+        for (int y = 0; y < outHeight; y++) {
+            for (int x = 0; x < outWidth; x++) {
+                if (crop[y * outWidth + x] != full[(top + y) * WIDTH + left + x]) {
+                    throw new AssertionError("mismatch at " + x + "," + y);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void bandsMatchSingleThread() {
+        int width = 1280;
+        int height = 720;
+        byte[] nv21 = randomFrame(width, height, 3);
+        int[] single = new int[width * height];
+        int[] banded = new int[width * height];
+        new YuvConverter(1).convert(nv21, width, height, 0, 0, width, height, single);
+        new YuvConverter(4).convert(nv21, width, height, 0, 0, width, height, banded);
+        assertArrayEquals(single, banded);
+    }
+
+    @Test
+    public void convertsA1080pFrameWithinBudget() {
+        int width = 1920;
+        int height = 1080;
+        byte[] nv21 = randomFrame(width, height, 4);
+        int[] argb = new int[width * height];
+
+        // About 35 ms on a single desktop core; the budget leaves room for slow CI machines.
+        long single = bestTime(new YuvConverter(1), nv21, width, height, argb);
+        assertTrue("1080p took " + single / 1000000 + " ms on one thread", single < 150000000L);
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        assumeTrue("Only one core to spread the work over", threads > 1);
+        long parallel = bestTime(new YuvConverter(threads), nv21, width, height, argb);
+        assertTrue("1080p took " + parallel / 1000000 + " ms on " + threads + " threads and "
+                + single / 1000000 + " ms on one", parallel < single);
+    }
+
+    // Fastest of several runs, which is the least disturbed by other work on the machine.
+    private static long bestTime(YuvConverter converter, byte[] nv21, int width, int height, int[] argb) {
+        for (int i = 0; i < 5; i++) {
+            converter.convert(nv21, width, height, 0, 0, width, height, argb);
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 20; i++) {
+            long start = System.nanoTime();
+            converter.convert(nv21, width, height, 0, 0, width, height, argb);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    // BT.601 video range in floating point.
+    private static int reference(byte[] nv21, int width, int height, int x, int y) {
+        int uvIndex = width * height + (y >> 1) * width + (x & ~1);
+        float luma = 1.164f * Math.max(0, (nv21[y * width + x] & 0xFF) - 16);
+        float v = (nv21[uvIndex] & 0xFF) - 128;
+        float u = (nv21[uvIndex + 1] & 0xFF) - 128;
+        int r = clamp(Math.round(luma + 1.596f * v));
+        int g = clamp(Math.round(luma - 0.813f * v - 0.391f * u));
+        int b = clamp(Math.round(luma + 2.018f * u));
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : value > 255 ? 255 : value;
+    }
+
+    private static int channelError(int expected, int actual) {
+        int error = 0;
+        for (int shift = 0; shift <= 16; shift += 8) {
+            error = Math.max(error, Math.abs(((expected >> shift) & 0xFF) - ((actual >> shift) & 0xFF)));
+        }
+        return error;
+    }
+
+    private static byte[] randomFrame(int width, int height, long seed) {
+        byte[] nv21 = new byte[width * height * 3 / 2];
+        new Random(seed).nextBytes(nv21);
+        return nv21;
+    }
+
+}
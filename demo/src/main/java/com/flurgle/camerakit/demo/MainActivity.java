@@ -17,8 +17,12 @@ import android.widget.Toast;
 import com.flurgle.camerakit.CameraKit;
 import com.flurgle.camerakit.CameraListener;
 import com.flurgle.camerakit.CameraView;
+import com.flurgle.camerakit.CaptureCallback;
+import com.flurgle.camerakit.CaptureRequest;
+import com.flurgle.camerakit.CaptureResult;
 
 import java.io.File;
+import java.util.concurrent.TimeUnit;
 
 import butterknife.BindView;
 import butterknife.ButterKnife;
@@ -104,11 +108,11 @@ public class MainActivity extends AppCompatActivity implements View.OnLayoutChan
     @OnClick(R.id.capturePhoto)
     void capturePhoto() {
         final long startTime = System.currentTimeMillis();
-        camera.setCameraListener(new CameraListener() {
+        camera.captureImage(new CaptureRequest().setTimeout(10, TimeUnit.SECONDS)).setCallback(new CaptureCallback() {
             @Override
-            public void onPictureTaken(byte[] jpeg) {
-                super.onPictureTaken(jpeg);
+            public void onCaptureCompleted(CaptureResult result) {
                 long callbackTime = System.currentTimeMillis();
+                byte[] jpeg = result.getJpeg();
                 Bitmap bitmap = BitmapFactory.decodeByteArray(jpeg, 0, jpeg.length);
                 ResultHolder.dispose();
                 ResultHolder.setImage(bitmap);
@@ -120,8 +124,12 @@ public class MainActivity extends AppCompatActivity implements View.OnLayoutChan
                 Intent intent = new Intent(MainActivity.this, PreviewActivity.class);
                 startActivity(intent);
             }
+
+            @Override
+            public void onCaptureFailed(Exception error) {
+                Toast.makeText(MainActivity.this, error.getMessage(), Toast.LENGTH_SHORT).show();
+            }
         });
-        camera.captureImage();
     }
 
     @OnClick(R.id.captureVideo)